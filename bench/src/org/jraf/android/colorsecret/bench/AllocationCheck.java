@@ -0,0 +1,173 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.bench;
+
+import java.lang.management.ManagementFactory;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.Board;
+import org.jraf.android.colorsecret.model.CodePeg;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.SecretGenerator;
+
+/**
+ * Checks that the calls the UI makes on every interaction do not allocate anything, by counting the bytes allocated by the current thread
+ * (a HotSpot extension of {@link java.lang.management.ThreadMXBean}).
+ * <p>
+ * Unlike {@code -prof gc} in JMH, this also counts the allocations the JIT could have removed: the app also runs interpreted.
+ * <p>
+ * Exits with status 1 if one of them allocates.
+ */
+public class AllocationCheck {
+    private static final int NB_WARMUP_OPERATIONS = 100000;
+    private static final int NB_OPERATIONS = 1000000;
+    private static final int NB_ROWS = 255;
+
+    private interface Operation {
+        /**
+         * @return something computed from the call, so that it is not optimized away.
+         */
+        int run(int i);
+    }
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private static final CodePeg[] CODE_PEGS = CodePeg.values();
+
+    private static int sSink;
+
+    public static void main(final String[] args) {
+        final int nbHoles = Constants.DEFAULT_NB_HOLES;
+        final int nbColors = Constants.DEFAULT_NB_COLORS;
+        final Game game = new Game(nbHoles, NB_ROWS, nbColors);
+        game.setRandomSecret();
+        final Board board = game.getBoard();
+        game.setGuessCode(0, 0);
+        game.validateGuess();
+
+        final double baseline = measure(new Operation() {
+            public int run(final int i) {
+                return i;
+            }
+        });
+
+        boolean allocates = false;
+        allocates |= check("Game.setGuess(CodePeg)", baseline, new Operation() {
+            public int run(final int i) {
+                game.setGuess(1, i % nbHoles, CODE_PEGS[i % nbColors]);
+                return i;
+            }
+        });
+        allocates |= check("Game.setGuess(int)", baseline, new Operation() {
+            public int run(final int i) {
+                game.setGuess(1, i % nbHoles, i % nbColors);
+                return i;
+            }
+        });
+        allocates |= check("Game.isRowComplete", baseline, new Operation() {
+            public int run(final int i) {
+                return game.isRowComplete(1) ? 1 : 0;
+            }
+        });
+        game.setHardMode(true);
+        allocates |= check("Game.canValidateGuess (hard mode)", baseline, new Operation() {
+            public int run(final int i) {
+                return game.canValidateGuess() ? 1 : 0;
+            }
+        });
+        allocates |= check("Game.getNbRemainingSecrets", baseline, new Operation() {
+            public int run(final int i) {
+                return game.getNbRemainingSecrets();
+            }
+        });
+        game.setHardMode(false);
+        allocates |= check("Game.getHints", baseline, new Operation() {
+            public int run(final int i) {
+                return game.getHints(0).size();
+            }
+        });
+        allocates |= check("Board.getCodePeg", baseline, new Operation() {
+            public int run(final int i) {
+                return board.getCodePeg(0, i % nbHoles).ordinal();
+            }
+        });
+        allocates |= check("Board.getScore", baseline, new Operation() {
+            public int run(final int i) {
+                return board.getScore(0);
+            }
+        });
+
+        final SecretGenerator secretGenerator = new SecretGenerator(game.getScoringEngine());
+        allocates |= check("SecretGenerator.next", baseline, new Operation() {
+            public int run(final int i) {
+                return (int) secretGenerator.next();
+            }
+        });
+
+        // a game can only be validated once per row: play whole games, created before measuring
+        final Game[] games = new Game[(NB_WARMUP_OPERATIONS + NB_OPERATIONS) / NB_ROWS + 1];
+        for (int i = 0; i < games.length; i++) {
+            games[i] = new Game(nbHoles, NB_ROWS, nbColors);
+            // never guessed, so that the games are never won
+            games[i].setSecretCode(0);
+        }
+        allocates |= check("Game.setGuessCode + validateGuess", baseline, new Operation() {
+            public int run(final int i) {
+                final Game g = games[i / NB_ROWS];
+                g.setGuessCode(i % NB_ROWS, 1);
+                return g.validateGuess().ordinal();
+            }
+        });
+
+        System.exit(allocates ? 1 : 0);
+    }
+
+    private static boolean check(final String name, final double baseline, final Operation operation) {
+        final double bytesPerOperation = Math.max(0, measure(operation) - baseline);
+        System.out.printf("%-40s %8.3f bytes/op%n", name, bytesPerOperation);
+        // the counter itself can allocate a little
+        return bytesPerOperation >= .5;
+    }
+
+    /**
+     * @return the number of bytes allocated per call.
+     */
+    private static double measure(final Operation operation) {
+        // the indices keep increasing from the warm up to the measure, so each call of an operation can be given its own data
+        int sink = 0;
+        for (int i = 0; i < NB_WARMUP_OPERATIONS; i++) {
+            sink += operation.run(i);
+        }
+        final long threadId = Thread.currentThread().getId();
+        final long before = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        for (int i = NB_WARMUP_OPERATIONS; i < NB_WARMUP_OPERATIONS + NB_OPERATIONS; i++) {
+            sink += operation.run(i);
+        }
+        final long after = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        sSink += sink;
+        return (double) (after - before) / NB_OPERATIONS;
+    }
+}
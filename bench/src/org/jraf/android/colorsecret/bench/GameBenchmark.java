@@ -0,0 +1,127 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.Board;
+import org.jraf.android.colorsecret.model.Board.Row;
+import org.jraf.android.colorsecret.model.CodePeg;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.HintPeg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The calls the UI makes on {@link Game}, {@link Board} and {@link Row} while playing. Only the colors of {@link CodePeg} can be used here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    @Param({ "4", "6", "8" })
+    public int nbHoles;
+
+    @Param({ "4", "6" })
+    public int nbColors;
+
+    private static final CodePeg[] CODE_PEGS = CodePeg.values();
+
+    private Game mGame;
+    private Row mPlayedRow;
+    private int mHole;
+
+    @Setup
+    public void setUp() {
+        mGame = new Game(nbHoles, Constants.DEFAULT_NB_ROWS, nbColors);
+        mGame.setRandomSecret();
+        // first row played, second row being filled
+        for (int i = 0; i < nbHoles; i++) {
+            mGame.setGuess(0, i, i % nbColors);
+        }
+        mGame.validateGuess();
+        for (int i = 0; i < nbHoles; i++) {
+            mGame.setGuess(1, i, (i + 1) % nbColors);
+        }
+        mPlayedRow = mGame.getBoard().getGuessRows()[0];
+    }
+
+    @Benchmark
+    public Game setRandomSecret() {
+        mGame.setRandomSecret();
+        return mGame;
+    }
+
+    @Benchmark
+    public Game setGuess() {
+        final int hole = mHole++ % nbHoles;
+        mGame.setGuess(1, hole, CODE_PEGS[hole % nbColors]);
+        return mGame;
+    }
+
+    @Benchmark
+    public boolean isRowComplete() {
+        return mGame.isRowComplete(1);
+    }
+
+    @Benchmark
+    public Row[] getGuessRows() {
+        return mGame.getBoard().getGuessRows();
+    }
+
+    @Benchmark
+    public CodePeg[] getCodePegs() {
+        return mPlayedRow.getCodePegs();
+    }
+
+    @Benchmark
+    public List<HintPeg> getHintPegs() {
+        return mPlayedRow.getHintPegs();
+    }
+
+    @Benchmark
+    public CodePeg boardGetCodePeg() {
+        return mGame.getBoard().getCodePeg(0, mHole++ % nbHoles);
+    }
+
+    @Benchmark
+    public List<HintPeg> boardGetHintPegs() {
+        return mGame.getBoard().getHintPegs(0);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.GameCodec;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving and restoring a game in progress with {@link GameCodec}, compared to Java serialization.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameCodecBenchmark {
+    @Param({ "4", "8" })
+    public int nbHoles;
+
+    @Param({ "6" })
+    public int nbPlayedRows;
+
+    private Game mGame;
+    private byte[] mEncoded;
+    private byte[] mSerialized;
+
+    @Setup
+    public void setUp() throws IOException {
+        final int nbColors = Constants.DEFAULT_NB_COLORS;
+        mGame = new Game(nbHoles, Constants.DEFAULT_NB_ROWS, nbColors);
+        mGame.setRandomSecret();
+        final Random random = new Random(0);
+        for (int i = 0; i < nbPlayedRows; i++) {
+            long code = 0;
+            for (int hole = 0; hole < nbHoles; hole++) {
+                code = ScoringEngine.setPeg(code, hole, random.nextInt(nbColors));
+            }
+            mGame.setGuessCode(i, code);
+            mGame.validateGuess();
+        }
+        mEncoded = GameCodec.encode(mGame);
+        mSerialized = serialize();
+        System.out.println();
+        System.out.println("Encoded size: " + mEncoded.length + " bytes, serialized size: " + mSerialized.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return GameCodec.encode(mGame);
+    }
+
+    @Benchmark
+    public Game decode() {
+        return GameCodec.decode(mEncoded);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1024);
+        final ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+        objectOutputStream.writeObject(mGame);
+        objectOutputStream.close();
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public Game deserialize() throws IOException, ClassNotFoundException {
+        final ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(mSerialized));
+        try {
+            return (Game) objectInputStream.readObject();
+        } finally {
+            objectInputStream.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.bench;
+
+import java.util.Arrays;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.Board;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.Game.GuessResult;
+import org.jraf.android.colorsecret.model.GameCodec;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+
+/**
+ * Checks that games encoded with {@link GameCodec} are decoded back to the same state, and that invalid data is rejected.
+ * <p>
+ * Exits with status 1 if one of the checks fails.
+ */
+public class GameCodecCheck {
+    private static boolean sFailed;
+
+    public static void main(final String[] args) {
+        final int nbHoles = Constants.DEFAULT_NB_HOLES;
+        final int nbRows = Constants.DEFAULT_NB_ROWS;
+        final int nbColors = Constants.DEFAULT_NB_COLORS;
+
+        Game game = newGame(nbHoles, nbRows, nbColors);
+        checkRoundTrip("empty game", game);
+
+        game = newGame(nbHoles, nbRows, nbColors);
+        play(game, 2);
+        // current row partially filled, with a hole left empty in the middle
+        game.setGuess(2, 0, 1);
+        game.setGuess(2, 2, nbColors - 1);
+        checkRoundTrip("partially filled row", game);
+
+        game = newGame(nbHoles, nbRows, nbColors);
+        play(game, 3);
+        game.setGuessCode(3, game.getSecretCode());
+        check("won game is won", game.validateGuess() == GuessResult.YOU_WON);
+        checkRoundTrip("won game", game);
+
+        game = newGame(nbHoles, nbRows, nbColors);
+        play(game, nbRows);
+        check("lost game is over", game.isOver());
+        checkRoundTrip("lost game", game);
+
+        final int maxNbHoles = ScoringEngine.MAX_NB_HOLES;
+        final int maxNbColors = ScoringEngine.MAX_NB_COLORS;
+        checkRoundTrip("max holes and colors, empty", newGame(maxNbHoles, nbRows, maxNbColors));
+        game = newGame(maxNbHoles, nbRows, maxNbColors);
+        play(game, 4);
+        for (int hole = 0; hole < maxNbHoles; hole += 2) {
+            game.setGuess(4, hole, maxNbColors - 1 - hole);
+        }
+        checkRoundTrip("max holes and colors, partially filled", game);
+        game = newGame(maxNbHoles, 255, maxNbColors);
+        play(game, 254);
+        checkRoundTrip("max holes, colors and rows", game);
+
+        final byte[] data = GameCodec.encode(game);
+        checkRejected("truncated data", Arrays.copyOf(data, data.length - 1));
+        final byte[] badVersion = data.clone();
+        badVersion[0] = (byte) (GameCodec.VERSION + 1);
+        checkRejected("unknown version", badVersion);
+        final byte[] badCurrentGuess = data.clone();
+        badCurrentGuess[2] = 1;
+        checkRejected("current guess past the last row", badCurrentGuess);
+
+        System.exit(sFailed ? 1 : 0);
+    }
+
+    private static Game newGame(final int nbHoles, final int nbRows, final int nbColors) {
+        final Game res = new Game(nbHoles, nbRows, nbColors);
+        // a secret that uses every hole, never guessed by play()
+        long secret = 0;
+        for (int hole = 0; hole < nbHoles; hole++) {
+            secret = ScoringEngine.setPeg(secret, hole, (hole + 1) % nbColors);
+        }
+        res.setSecretCode(secret);
+        return res;
+    }
+
+    /**
+     * Validates the given number of wrong guesses, which use all the colors.
+     */
+    private static void play(final Game game, final int nbGuesses) {
+        final int nbHoles = game.getNbHoles();
+        final int nbColors = game.getNbColors();
+        for (int i = 0; i < nbGuesses; i++) {
+            long guess = 0;
+            for (int hole = 0; hole < nbHoles; hole++) {
+                guess = ScoringEngine.setPeg(guess, hole, (i + hole * 3) % nbColors);
+            }
+            if (guess == game.getSecretCode()) {
+                guess = ScoringEngine.setPeg(guess, 0, (ScoringEngine.getPeg(guess, 0) + 1) % nbColors);
+            }
+            game.setGuessCode(i, guess);
+            game.validateGuess();
+        }
+    }
+
+    private static void checkRoundTrip(final String name, final Game game) {
+        final byte[] data = GameCodec.encode(game);
+        final Game decoded = GameCodec.decode(data);
+        boolean same = decoded.getNbHoles() == game.getNbHoles() && decoded.getNbRows() == game.getNbRows()
+                && decoded.getNbColors() == game.getNbColors() && decoded.getCurrentGuess() == game.getCurrentGuess()
+                && decoded.getSecretCode() == game.getSecretCode() && decoded.isOver() == game.isOver();
+        final Board board = game.getBoard();
+        final Board decodedBoard = decoded.getBoard();
+        for (int row = 0; same && row < game.getNbRows(); row++) {
+            same = decodedBoard.getScore(row) == board.getScore(row);
+            for (int hole = 0; same && hole < game.getNbHoles(); hole++) {
+                same = decodedBoard.getColor(row, hole) == board.getColor(row, hole);
+            }
+        }
+        check(name + ": same game", same);
+        check(name + ": same encoding", Arrays.equals(GameCodec.encode(decoded), data));
+    }
+
+    private static void checkRejected(final String name, final byte[] data) {
+        boolean rejected = false;
+        try {
+            GameCodec.decode(data);
+        } catch (final IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(name + ": rejected", rejected);
+    }
+
+    private static void check(final String name, final boolean ok) {
+        System.out.printf("%-60s %s%n", name, ok ? "ok" : "FAILED");
+        sFailed |= !ok;
+    }
+}
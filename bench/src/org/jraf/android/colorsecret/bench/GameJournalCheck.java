@@ -0,0 +1,151 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.GameCodec;
+import org.jraf.android.colorsecret.model.GameJournal;
+
+/**
+ * Checks that a {@link GameJournal} written by one process is replayed to the same game by the next one, and that a damaged end of
+ * journal only loses the moves it contains.
+ * <p>
+ * Exits with status 1 if one of the checks fails.
+ */
+public class GameJournalCheck {
+    private static final long COMMIT_DELAY_MS = 10;
+
+    private static boolean sFailed;
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final File file = File.createTempFile("game", ".journal");
+        file.deleteOnExit();
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            final Game game = new Game(Constants.DEFAULT_NB_HOLES, Constants.DEFAULT_NB_ROWS, Constants.DEFAULT_NB_COLORS);
+            game.setSecretCode(0x1234);
+            final GameJournal journal = new GameJournal(file, executor, COMMIT_DELAY_MS);
+            journal.startGame(game);
+
+            setGuess(journal, game, 0, 0, 1);
+            setGuess(journal, game, 0, 1, 2);
+            setGuess(journal, game, 0, 2, 3);
+            setGuess(journal, game, 0, 3, 4);
+            game.validateGuess();
+            journal.validateGuess();
+            game.setGuessCode(1, 0x4321);
+            journal.setGuessCode(1, 0x4321);
+            game.validateGuess();
+            journal.validateGuess();
+            final byte[] beforeLastRow = GameCodec.encode(game);
+            setGuess(journal, game, 2, 0, 5);
+            setGuess(journal, game, 2, 1, 5);
+            // empties a hole
+            setGuess(journal, game, 2, 0, -1);
+            check("hole emptied", game.getBoard().getColor(2, 0) == -1);
+            commit(journal, executor);
+            check("replay", Arrays.equals(GameCodec.encode(replay(file, executor)), GameCodec.encode(game)));
+
+            // the last record (the emptied hole) cut in the middle
+            truncate(file, file.length() - 2);
+            final Game truncated = replay(file, executor);
+            check("truncated journal: last move lost", truncated.getBoard().getColor(2, 0) == 5);
+            check("truncated journal: other moves kept", truncated.getBoard().getColor(2, 1) == 5 && truncated.getCurrentGuess() == 2);
+
+            // a byte of the first move of the last row corrupted: the replay stops before it
+            final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                // the file ends with the two moves of the last row (10 bytes each) and the 8 bytes left of the cut one
+                randomAccessFile.seek(file.length() - 8 - 10 - 10 + 4);
+                randomAccessFile.write(0x55);
+            } finally {
+                randomAccessFile.close();
+            }
+            check("corrupted journal", Arrays.equals(GameCodec.encode(replay(file, executor)), beforeLastRow));
+
+            truncate(file, 0);
+            check("empty journal", replay(file, executor) == null);
+        } finally {
+            executor.shutdownNow();
+        }
+        System.exit(sFailed ? 1 : 0);
+    }
+
+    private static void setGuess(final GameJournal journal, final Game game, final int rowIndex, final int holeIndex, final int color) {
+        game.setGuess(rowIndex, holeIndex, color);
+        journal.setGuess(rowIndex, holeIndex, color);
+    }
+
+    private static void commit(final GameJournal journal, final ScheduledExecutorService executor) throws InterruptedException {
+        journal.commitNow();
+        // the executor runs its tasks in order
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        });
+        done.await(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the game replayed by a new journal on the given file, as in a new process.
+     */
+    private static Game replay(final File file, final ScheduledExecutorService executor) throws InterruptedException {
+        final GameJournal journal = new GameJournal(file, executor, COMMIT_DELAY_MS);
+        final CountDownLatch replayed = new CountDownLatch(1);
+        journal.replay(new Runnable() {
+            public void run() {
+                replayed.countDown();
+            }
+        });
+        replayed.await(10, TimeUnit.SECONDS);
+        return journal.getReplayedGame();
+    }
+
+    private static void truncate(final File file, final long length) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void check(final String name, final boolean ok) {
+        System.out.printf("%-60s %s%n", name, ok ? "ok" : "FAILED");
+        sFailed |= !ok;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+import org.jraf.android.colorsecret.server.GameSessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Guesses per second on a {@link GameSessionManager} shared by as many threads as there are available processors (change it with
+ * {@code -t}).
+ * <p>
+ * Each thread plays random guesses on its own sessions. When a game is over, its session is ended and replaced by a new one, as part of
+ * the measured guess.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class GameSessionManagerBenchmark {
+    private static final int NB_SESSIONS_PER_THREAD = 64;
+
+    @State(Scope.Benchmark)
+    public static class Manager {
+        @Param({ "4" })
+        public int nbHoles;
+
+        @Param({ "6" })
+        public int nbColors;
+
+        private GameSessionManager mGameSessionManager;
+        private ScoringEngine mScoringEngine;
+
+        @Setup
+        public void setUp() {
+            mGameSessionManager = new GameSessionManager(nbHoles, Constants.DEFAULT_NB_ROWS, nbColors);
+            mScoringEngine = new ScoringEngine(nbHoles, nbColors);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Player {
+        private final String[] mSessionIds = new String[NB_SESSIONS_PER_THREAD];
+        private int mIndex;
+
+        @Setup
+        public void setUp(final Manager manager) {
+            for (int i = 0; i < NB_SESSIONS_PER_THREAD; i++) {
+                mSessionIds[i] = manager.mGameSessionManager.createSession();
+            }
+        }
+    }
+
+    @Benchmark
+    public int guess(final Manager manager, final Player player) {
+        final GameSessionManager gameSessionManager = manager.mGameSessionManager;
+        final int i = player.mIndex++ & (NB_SESSIONS_PER_THREAD - 1);
+        final String sessionId = player.mSessionIds[i];
+        final long code = manager.mScoringEngine.codeAt(ThreadLocalRandom.current().nextLong(manager.mScoringEngine.getCodeSpaceSize()));
+        final int res = gameSessionManager.guess(sessionId, code).getScore();
+        if (gameSessionManager.isOver(sessionId)) {
+            gameSessionManager.endSession(sessionId);
+            player.mSessionIds[i] = gameSessionManager.createSession();
+        }
+        return res;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.android.colorsecret.model.FeedbackTable;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.Game.GuessResult;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scoring a guess: computed, looked up in a {@link FeedbackTable}, and through {@link Game#validateGuess()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+    private static final int NB_CODES = 1024;
+
+    @Param({ "4", "6", "8" })
+    public int nbHoles;
+
+    @Param({ "6", "10" })
+    public int nbColors;
+
+    private ScoringEngine mScoringEngine;
+    private final long[] mCodes = new long[NB_CODES];
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        mScoringEngine = new ScoringEngine(nbHoles, nbColors);
+        final Random random = new Random(0);
+        for (int i = 0; i < NB_CODES; i++) {
+            mCodes[i] = mScoringEngine.codeAt((long) (random.nextDouble() * mScoringEngine.getCodeSpaceSize()));
+        }
+    }
+
+    /**
+     * A feedback table only fits the smaller code spaces, so it has its own configuration.
+     */
+    @State(Scope.Benchmark)
+    public static class Table {
+        @Param({ "4" })
+        public int tableNbHoles;
+
+        @Param({ "6" })
+        public int tableNbColors;
+
+        private FeedbackTable mFeedbackTable;
+
+        @Setup
+        public void setUp() {
+            mFeedbackTable = FeedbackTable.build(new ScoringEngine(tableNbHoles, tableNbColors));
+        }
+    }
+
+    @Benchmark
+    public int score() {
+        final int i = mIndex++ & (NB_CODES - 1);
+        return mScoringEngine.score(mCodes[i], mCodes[(i + 1) & (NB_CODES - 1)]);
+    }
+
+    @Benchmark
+    public int feedbackTableScore(final Table table) {
+        final int size = table.mFeedbackTable.getSize();
+        final int i = mIndex++ & (NB_CODES - 1);
+        return table.mFeedbackTable.score(i % size, (i * 31) % size);
+    }
+
+    /**
+     * Baseline for {@link #validateGuess()}.
+     */
+    @Benchmark
+    public Game newGame() {
+        final int i = mIndex++ & (NB_CODES - 1);
+        final Game game = new Game(nbHoles, 1, nbColors);
+        game.setSecretCode(mCodes[i]);
+        game.setGuessCode(0, mCodes[(i + 1) & (NB_CODES - 1)]);
+        return game;
+    }
+
+    /**
+     * A game can only be validated once per row, so this includes {@link #newGame()}.
+     */
+    @Benchmark
+    public GuessResult validateGuess() {
+        return newGame().validateGuess();
+    }
+}
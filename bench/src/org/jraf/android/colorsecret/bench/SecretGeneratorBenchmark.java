@@ -0,0 +1,114 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+import org.jraf.android.colorsecret.model.SecretGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Secrets drawn per second by {@link SecretGenerator}, compared with the previous implementation of {@link Game#setRandomSecret()} (a new
+ * {@link Random} per secret). Run it with several threads ({@code -t 4}) to see how it scales on a server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecretGeneratorBenchmark {
+    private static final int BUFFER_SIZE = 1024;
+
+    @Param({ "4", "6", "8" })
+    public int nbHoles;
+
+    @Param({ "6", "10" })
+    public int nbColors;
+
+    private SecretGenerator mSecretGenerator;
+    private SecretGenerator mDistinctSecretGenerator;
+    private final long[] mSecrets = new long[BUFFER_SIZE];
+    private long mSeed;
+
+    @Setup
+    public void setUp() {
+        final ScoringEngine scoringEngine = new ScoringEngine(nbHoles, nbColors);
+        mSecretGenerator = new SecretGenerator(scoringEngine);
+        mDistinctSecretGenerator = nbHoles <= nbColors ? new SecretGenerator(scoringEngine, nbHoles) : mSecretGenerator;
+    }
+
+    /**
+     * Baseline: the previous implementation of {@link Game#setRandomSecret()}.
+     */
+    @Benchmark
+    public long javaUtilRandom() {
+        final Random random = new Random();
+        long res = 0;
+        for (int i = 0; i < nbHoles; i++) {
+            res = ScoringEngine.setPeg(res, i, random.nextInt(nbColors));
+        }
+        return res;
+    }
+
+    @Benchmark
+    public long next() {
+        return mSecretGenerator.next();
+    }
+
+    @Benchmark
+    public long nextSeeded() {
+        return mSecretGenerator.next(mSeed++);
+    }
+
+    /**
+     * No repeated colors, when there are enough colors.
+     */
+    @Benchmark
+    public long nextDistinct() {
+        return mDistinctSecretGenerator.next();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BUFFER_SIZE)
+    public long[] fill() {
+        mSecretGenerator.fill(mSecrets, 0, BUFFER_SIZE);
+        return mSecrets;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.bench;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.FeedbackTable;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+import org.jraf.android.colorsecret.solver.SamplingSolver;
+import org.jraf.android.colorsecret.solver.Solver;
+import org.jraf.android.colorsecret.solver.Strategy;
+import org.jraf.android.colorsecret.solver.StrategySolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the feedback table and computing the first move, single-threaded ({@code nbThreads=1}) and split across a thread pool.
+ * <p>
+ * The first move is the most expensive one: all the codes are still candidates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+    @Param({ "4" })
+    public int nbHoles;
+
+    @Param({ "6" })
+    public int nbColors;
+
+    @Param({ "MINIMAX", "EXPECTED_SIZE", "ENTROPY", "MOST_PARTS" })
+    public Strategy strategy;
+
+    /**
+     * 0 means as many as there are available processors.
+     */
+    @Param({ "1", "0" })
+    public int nbThreads;
+
+    private ScoringEngine mScoringEngine;
+    private FeedbackTable mFeedbackTable;
+    private ExecutorService mExecutorService;
+    private Solver mStrategySolver;
+    private Solver mSamplingSolver;
+    private Game mGame;
+    private int mThreads;
+
+    @Setup
+    public void setUp() {
+        mThreads = nbThreads == 0 ? Runtime.getRuntime().availableProcessors() : nbThreads;
+        mScoringEngine = new ScoringEngine(nbHoles, nbColors);
+        mFeedbackTable = FeedbackTable.build(mScoringEngine);
+        mExecutorService = mThreads == 1 ? null : Executors.newFixedThreadPool(mThreads);
+        mStrategySolver = new StrategySolver(mFeedbackTable, strategy, mExecutorService, mThreads);
+        mSamplingSolver = new SamplingSolver(strategy);
+        mGame = new Game(nbHoles, Constants.DEFAULT_NB_ROWS, nbColors);
+        mGame.setRandomSecret();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mExecutorService != null) {
+            mExecutorService.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public FeedbackTable buildFeedbackTable() {
+        return FeedbackTable.build(mScoringEngine, mThreads);
+    }
+
+    /**
+     * The solver keeps its candidates for the same game, so this only measures the evaluation of the guesses.
+     */
+    @Benchmark
+    public long strategySolverFirstMove() {
+        return mStrategySolver.nextGuess(mGame);
+    }
+
+    @Benchmark
+    public long samplingSolverFirstMove() {
+        return mSamplingSolver.nextGuess(mGame);
+    }
+}
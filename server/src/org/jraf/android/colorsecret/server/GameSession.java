@@ -0,0 +1,49 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.server;
+
+import org.jraf.android.colorsecret.model.Game;
+
+/**
+ * A game hosted by a {@link GameSessionManager}.
+ * <p>
+ * {@link Game} is not thread-safe: it must only be used while holding the monitor of its session.
+ */
+class GameSession {
+    final Game mGame;
+    /**
+     * In {@link System#nanoTime()} time. Written while holding the monitor, but read without it when looking for idle sessions.
+     */
+    volatile long mLastAccessTime;
+
+    GameSession(final Game game) {
+        mGame = game;
+        mLastAccessTime = System.nanoTime();
+    }
+
+    boolean isOver() {
+        return mGame.isOver();
+    }
+}
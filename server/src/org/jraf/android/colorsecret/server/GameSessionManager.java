@@ -0,0 +1,231 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.server;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.GameCodec;
+import org.jraf.android.colorsecret.model.Game.GuessResult;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+import org.jraf.android.colorsecret.model.SecretGenerator;
+
+/**
+ * Hosts the games of many concurrent players, one {@link Game} per session.
+ * <p>
+ * Sessions are kept in a {@link ConcurrentHashMap}, which locks per bin when writing and not at all when reading, so looking up a
+ * session never blocks on the other sessions. Each session is then only ever modified while holding its own monitor: two guesses on
+ * the same session are serialized, guesses on different sessions run in parallel.
+ * <p>
+ * Session ids are random {@link UUID}s, so they cannot be guessed by other players.
+ * <p>
+ * A session can be exported to a few bytes with {@link #exportSession(String)} (see {@link GameCodec}), to be stored or moved to another
+ * server, and imported back with {@link #importSession(byte[])}.
+ */
+public class GameSessionManager {
+    private final int mNbHoles;
+    private final int mNbRows;
+    private final int mNbColors;
+
+    private final SecretGenerator mSecretGenerator;
+
+    private final ConcurrentHashMap<String, GameSession> mSessions;
+
+    /**
+     * @param nbHoles
+     *            number of holes for each row.
+     * @param nbRows
+     *            total number of rows.
+     * @param nbColors
+     *            number of colors.
+     */
+    public GameSessionManager(final int nbHoles, final int nbRows, final int nbColors) {
+        // also fails now rather than at the first session
+        mSecretGenerator = new SecretGenerator(new ScoringEngine(nbHoles, nbColors));
+        mNbHoles = nbHoles;
+        mNbRows = nbRows;
+        mNbColors = nbColors;
+        mSessions = new ConcurrentHashMap<String, GameSession>(1024, .75f, Runtime.getRuntime().availableProcessors());
+    }
+
+
+    /*
+     * Sessions.
+     */
+
+    /**
+     * Starts a game with a random secret.
+     *
+     * @return the id of the new session.
+     */
+    public String createSession() {
+        final Game game = newGame();
+        // one generator per thread: concurrent sessions do not contend on it
+        game.setSecretCode(mSecretGenerator.next());
+        return register(game);
+    }
+
+    /**
+     * Starts a game with the given secret.
+     *
+     * @param secret
+     *            the packed code of the secret (see {@link ScoringEngine}).
+     * @return the id of the new session.
+     */
+    public String createSession(final long secret) {
+        final Game game = newGame();
+        game.setSecretCode(secret);
+        return register(game);
+    }
+
+    private Game newGame() {
+        return new Game(mNbHoles, mNbRows, mNbColors);
+    }
+
+    private String register(final Game game) {
+        final GameSession session = new GameSession(game);
+        while (true) {
+            final String sessionId = UUID.randomUUID().toString();
+            if (mSessions.putIfAbsent(sessionId, session) == null) {
+                return sessionId;
+            }
+        }
+    }
+
+    /**
+     * Forgets a session. A guess being made on this session at the same time still completes.
+     *
+     * @return {@code true} if the session existed.
+     */
+    public boolean endSession(final String sessionId) {
+        return mSessions.remove(sessionId) != null;
+    }
+
+    /**
+     * Forgets the sessions that have not been used for the given time, whether their game is over or not.
+     *
+     * @return the number of sessions forgotten.
+     */
+    public int removeIdleSessions(final long maxIdleTime, final TimeUnit unit) {
+        final long now = System.nanoTime();
+        final long maxIdleNanos = unit.toNanos(maxIdleTime);
+        int res = 0;
+        for (final Iterator<Map.Entry<String, GameSession>> i = mSessions.entrySet().iterator(); i.hasNext();) {
+            final Map.Entry<String, GameSession> entry = i.next();
+            if (now - entry.getValue().mLastAccessTime > maxIdleNanos) {
+                // only if it has not been replaced in the meantime
+                if (mSessions.remove(entry.getKey(), entry.getValue())) res++;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return the game of the given session, encoded with {@link GameCodec}.
+     * @throws IllegalArgumentException
+     *             if there is no such session.
+     */
+    public byte[] exportSession(final String sessionId) {
+        final GameSession session = getSession(sessionId);
+        synchronized (session) {
+            return GameCodec.encode(session.mGame);
+        }
+    }
+
+    /**
+     * Starts a session from a game exported with {@link #exportSession(String)}.
+     *
+     * @return the id of the new session.
+     * @throws IllegalArgumentException
+     *             if the data is not a valid game, or is a game with another number of holes, rows or colors than this manager's.
+     */
+    public String importSession(final byte[] data) {
+        final Game game = GameCodec.decode(data);
+        if (game.getNbHoles() != mNbHoles || game.getNbRows() != mNbRows || game.getNbColors() != mNbColors) {
+            throw new IllegalArgumentException("The game does not have " + mNbHoles + " holes, " + mNbRows + " rows and " + mNbColors
+                    + " colors");
+        }
+        return register(game);
+    }
+
+    public int getNbSessions() {
+        return mSessions.size();
+    }
+
+
+    /*
+     * Play.
+     */
+
+    /**
+     * Plays a guess in the next row of the game of the given session.
+     *
+     * @param code
+     *            the packed code of the guess (see {@link ScoringEngine}).
+     * @throws IllegalArgumentException
+     *             if there is no such session, or if the code is not valid for this game.
+     * @throws IllegalStateException
+     *             if the game of this session is already over.
+     */
+    public GuessOutcome guess(final String sessionId, final long code) {
+        final GameSession session = getSession(sessionId);
+        synchronized (session) {
+            if (session.isOver()) {
+                throw new IllegalStateException("The game of session " + sessionId + " is over");
+            }
+            final Game game = session.mGame;
+            final int rowIndex = game.getCurrentGuess();
+            game.setGuessCode(rowIndex, code);
+            final GuessResult result = game.validateGuess();
+            session.mLastAccessTime = System.nanoTime();
+            return new GuessOutcome(rowIndex, game.getScore(rowIndex), result, session.isOver() ? game.getSecretCode()
+                    : ScoringEngine.NO_CODE);
+        }
+    }
+
+    /**
+     * @return {@code true} if the game of the given session is over, won or lost.
+     * @throws IllegalArgumentException
+     *             if there is no such session.
+     */
+    public boolean isOver(final String sessionId) {
+        final GameSession session = getSession(sessionId);
+        synchronized (session) {
+            return session.isOver();
+        }
+    }
+
+    private GameSession getSession(final String sessionId) {
+        final GameSession res = mSessions.get(sessionId);
+        if (res == null) {
+            throw new IllegalArgumentException("Unknown session: " + sessionId);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.server;
+
+import org.jraf.android.colorsecret.model.Game.GuessResult;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+
+/**
+ * What a player is told after a guess. Immutable.
+ */
+public class GuessOutcome {
+    private final int mRowIndex;
+    private final int mScore;
+    private final GuessResult mResult;
+    private final long mSecret;
+
+    GuessOutcome(final int rowIndex, final int score, final GuessResult result, final long secret) {
+        mRowIndex = rowIndex;
+        mScore = score;
+        mResult = result;
+        mSecret = secret;
+    }
+
+    /**
+     * @return the index of the row of this guess.
+     */
+    public int getRowIndex() {
+        return mRowIndex;
+    }
+
+    /**
+     * @return the packed score of this guess (see {@link ScoringEngine}).
+     */
+    public int getScore() {
+        return mScore;
+    }
+
+    public GuessResult getResult() {
+        return mResult;
+    }
+
+    /**
+     * @return the packed code of the secret once the game is over, {@link ScoringEngine#NO_CODE} before.
+     */
+    public long getSecret() {
+        return mSecret;
+    }
+}
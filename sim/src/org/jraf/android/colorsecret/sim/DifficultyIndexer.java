@@ -0,0 +1,169 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.sim;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.DifficultyIndex;
+import org.jraf.android.colorsecret.model.FeedbackTable;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.Game.GuessResult;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+import org.jraf.android.colorsecret.solver.CachingSolver;
+import org.jraf.android.colorsecret.solver.Solver;
+import org.jraf.android.colorsecret.solver.Strategy;
+import org.jraf.android.colorsecret.solver.StrategySolver;
+
+/**
+ * Plays a reference solver against every secret of the code space, and writes the number of guesses it needed for each one to a
+ * {@link DifficultyIndex}.
+ * <p>
+ * The code space is split in chunks, played in parallel. Each thread keeps its own solver for all its chunks: the solver is
+ * deterministic, so its {@link CachingSolver} is shared by all the games of the thread.
+ */
+public class DifficultyIndexer {
+    private final ScoringEngine mScoringEngine;
+    private final Strategy mStrategy;
+    private final FeedbackTable mFeedbackTable;
+
+    public DifficultyIndexer(final int nbHoles, final int nbColors, final Strategy strategy) {
+        mScoringEngine = new ScoringEngine(nbHoles, nbColors);
+        mStrategy = strategy;
+        // the reference solver is exhaustive: it needs a feedback table, which also limits the size of the code space
+        mFeedbackTable = FeedbackTable.build(mScoringEngine);
+    }
+
+    /**
+     * Plays every secret, split across the given number of threads.
+     */
+    public DifficultyIndex run(final int nbThreads) throws InterruptedException {
+        final int size = mFeedbackTable.getSize();
+        final byte[] nbGuesses = new byte[size];
+        final ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> new CachingSolver(new StrategySolver(mFeedbackTable, mStrategy)));
+        final ExecutorService executorService = Executors.newFixedThreadPool(nbThreads);
+        try {
+            // a few more chunks than threads so that the threads finishing early can help the others
+            final int nbChunks = Math.min(size, nbThreads * 4);
+            final List<Future<?>> futures = new ArrayList<Future<?>>(nbChunks);
+            for (int chunk = 0; chunk < nbChunks; chunk++) {
+                final int from = (int) ((long) size * chunk / nbChunks);
+                final int to = (int) ((long) size * (chunk + 1) / nbChunks);
+                futures.add(executorService.submit(() -> play(solvers.get(), nbGuesses, from, to)));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("An indexing thread failed", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        return DifficultyIndex.wrap(mScoringEngine, nbGuesses);
+    }
+
+    private void play(final Solver solver, final byte[] nbGuesses, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            // enough rows for the solver to always win
+            final Game game = new Game(mScoringEngine.getNbHoles(), DifficultyIndex.MAX_NB_GUESSES, mScoringEngine.getNbColors());
+            game.setSecretCode(mScoringEngine.codeAt(i));
+            while (true) {
+                game.setGuessCode(game.getCurrentGuess(), solver.nextGuess(game));
+                final GuessResult guessResult = game.validateGuess();
+                if (guessResult == GuessResult.YOU_WON) {
+                    nbGuesses[i] = (byte) (game.getCurrentGuess() + 1);
+                    break;
+                } else if (guessResult == GuessResult.GAME_OVER) {
+                    throw new IllegalStateException("The solver did not find " + mScoringEngine.toString(game.getSecretCode()));
+                }
+            }
+        }
+    }
+
+
+    /*
+     * Command line.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: DifficultyIndexer --out=FILE [--holes=N] [--colors=N] [--threads=N]");
+        System.err.println("                         [--strategy=MINIMAX|EXPECTED_SIZE|ENTROPY|MOST_PARTS]");
+        System.exit(1);
+    }
+
+    public static void main(final String[] args) throws InterruptedException, IOException {
+        File outFile = null;
+        int nbHoles = Constants.DEFAULT_NB_HOLES;
+        int nbColors = Constants.DEFAULT_NB_COLORS;
+        Strategy strategy = Strategy.MINIMAX;
+        int nbThreads = Runtime.getRuntime().availableProcessors();
+        for (final String arg : args) {
+            final int equals = arg.indexOf('=');
+            final String name = equals == -1 ? arg : arg.substring(0, equals);
+            final String value = equals == -1 ? null : arg.substring(equals + 1);
+            try {
+                if (name.equals("--out")) {
+                    outFile = new File(value);
+                } else if (name.equals("--holes")) {
+                    nbHoles = Integer.parseInt(value);
+                } else if (name.equals("--colors")) {
+                    nbColors = Integer.parseInt(value);
+                } else if (name.equals("--strategy")) {
+                    strategy = Strategy.valueOf(value.toUpperCase(Locale.US));
+                } else if (name.equals("--threads")) {
+                    nbThreads = Integer.parseInt(value);
+                } else {
+                    usage();
+                }
+            } catch (final RuntimeException e) {
+                usage();
+            }
+        }
+        if (outFile == null) usage();
+
+        final long start = System.nanoTime();
+        final DifficultyIndex difficultyIndex = new DifficultyIndexer(nbHoles, nbColors, strategy).run(nbThreads);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        difficultyIndex.save(outFile);
+
+        System.out.printf(Locale.US, "%d secrets (%d holes, %d colors, %s) on %d threads in %.2f s, written to %s%n",
+                difficultyIndex.getSize(), nbHoles, nbColors, strategy, nbThreads, seconds, outFile);
+        System.out.println("Guesses    Secrets");
+        for (int i = 1; i <= DifficultyIndex.MAX_NB_GUESSES; i++) {
+            final int nbSecrets = difficultyIndex.getNbSecrets(i, i);
+            if (nbSecrets != 0) {
+                System.out.printf(Locale.US, "%7d %10d%n", i, nbSecrets);
+            }
+        }
+    }
+}
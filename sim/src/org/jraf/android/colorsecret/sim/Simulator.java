@@ -0,0 +1,250 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.FeedbackTable;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.Game.GuessResult;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+import org.jraf.android.colorsecret.solver.CachingSolver;
+import org.jraf.android.colorsecret.solver.SamplingSolver;
+import org.jraf.android.colorsecret.solver.Solver;
+import org.jraf.android.colorsecret.solver.Strategy;
+import org.jraf.android.colorsecret.solver.StrategySolver;
+
+/**
+ * Plays a lot of games with random secrets and a solver, and reports the distribution of the number of guesses.
+ * <p>
+ * The games are split across threads, each one with its own solver and its own {@link SplittableRandom}, split from a single seed so
+ * that a run can be reproduced.
+ */
+public class Simulator {
+    private final int mNbHoles;
+    private final int mNbRows;
+    private final int mNbColors;
+    private final Strategy mStrategy;
+    private final boolean mCache;
+    private final FeedbackTable mFeedbackTable;
+
+    /**
+     * Statistics of a set of games.
+     */
+    public static class Result {
+        /**
+         * Number of games won in each number of guesses, index 0 being the lost games.
+         */
+        public final long[] mHistogram;
+        public long mDurationNs;
+
+        Result(final int nbRows) {
+            mHistogram = new long[nbRows + 1];
+        }
+
+        void add(final Result other) {
+            for (int i = 0; i < mHistogram.length; i++) {
+                mHistogram[i] += other.mHistogram[i];
+            }
+        }
+
+        public long getNbGames() {
+            long res = 0;
+            for (final long nbGames : mHistogram) {
+                res += nbGames;
+            }
+            return res;
+        }
+
+        public long getNbWon() {
+            return getNbGames() - mHistogram[0];
+        }
+
+        /**
+         * @return the mean number of guesses of the won games.
+         */
+        public double getMeanGuesses() {
+            long totalGuesses = 0;
+            for (int i = 1; i < mHistogram.length; i++) {
+                totalGuesses += i * mHistogram[i];
+            }
+            return (double) totalGuesses / getNbWon();
+        }
+    }
+
+    /**
+     * @param cache
+     *            whether to remember the guesses of the solver (see {@link CachingSolver}).
+     */
+    public Simulator(final int nbHoles, final int nbRows, final int nbColors, final Strategy strategy, final boolean cache) {
+        mNbHoles = nbHoles;
+        mNbRows = nbRows;
+        mNbColors = nbColors;
+        mStrategy = strategy;
+        mCache = cache;
+        final ScoringEngine scoringEngine = new ScoringEngine(nbHoles, nbColors);
+        // exhaustive solvers need a feedback table, only possible for small code spaces
+        mFeedbackTable = scoringEngine.getCodeSpaceSize() <= FeedbackTable.MAX_CODE_SPACE_SIZE ? FeedbackTable.build(scoringEngine)
+                : null;
+    }
+
+    private Solver newSolver() {
+        final Solver solver = mFeedbackTable == null ? new SamplingSolver(mStrategy) : new StrategySolver(mFeedbackTable, mStrategy);
+        return mCache ? new CachingSolver(solver) : solver;
+    }
+
+    /**
+     * Plays the given number of games, split across the given number of threads.
+     */
+    public Result run(final long nbGames, final int nbThreads, final long seed) throws InterruptedException {
+        final SplittableRandom seedRandom = new SplittableRandom(seed);
+        final ExecutorService executorService = Executors.newFixedThreadPool(nbThreads);
+        final long start = System.nanoTime();
+        final Result res = new Result(mNbRows);
+        try {
+            final List<Future<Result>> futures = new ArrayList<Future<Result>>(nbThreads);
+            for (int i = 0; i < nbThreads; i++) {
+                final long nbShardGames = nbGames / nbThreads + (i < nbGames % nbThreads ? 1 : 0);
+                final SplittableRandom random = seedRandom.split();
+                futures.add(executorService.submit(() -> play(nbShardGames, random)));
+            }
+            for (final Future<Result> future : futures) {
+                res.add(future.get());
+            }
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("A simulation thread failed", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+        res.mDurationNs = System.nanoTime() - start;
+        return res;
+    }
+
+    private Result play(final long nbGames, final SplittableRandom random) {
+        final Solver solver = newSolver();
+        final Result res = new Result(mNbRows);
+        for (long i = 0; i < nbGames; i++) {
+            long secret = 0;
+            for (int hole = 0; hole < mNbHoles; hole++) {
+                secret = ScoringEngine.setPeg(secret, hole, random.nextInt(mNbColors));
+            }
+            final Game game = new Game(mNbHoles, mNbRows, mNbColors);
+            game.setSecretCode(secret);
+            res.mHistogram[play(game, solver)]++;
+        }
+        return res;
+    }
+
+    /**
+     * @return the number of guesses it took to win, 0 if the game was lost.
+     */
+    private static int play(final Game game, final Solver solver) {
+        while (true) {
+            game.setGuessCode(game.getCurrentGuess(), solver.nextGuess(game));
+            final GuessResult guessResult = game.validateGuess();
+            if (guessResult == GuessResult.YOU_WON) {
+                return game.getCurrentGuess() + 1;
+            } else if (guessResult == GuessResult.GAME_OVER) {
+                return 0;
+            }
+        }
+    }
+
+
+    /*
+     * Command line.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: Simulator [--games=N] [--holes=N] [--colors=N] [--rows=N] [--strategy=MINIMAX|EXPECTED_SIZE|ENTROPY|MOST_PARTS]");
+        System.err.println("                 [--threads=N] [--seed=N] [--no-cache]");
+        System.exit(1);
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        long nbGames = 1000000;
+        int nbHoles = Constants.DEFAULT_NB_HOLES;
+        int nbColors = Constants.DEFAULT_NB_COLORS;
+        int nbRows = Constants.DEFAULT_NB_ROWS;
+        Strategy strategy = Strategy.MINIMAX;
+        int nbThreads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        boolean cache = true;
+        for (final String arg : args) {
+            final int equals = arg.indexOf('=');
+            final String name = equals == -1 ? arg : arg.substring(0, equals);
+            final String value = equals == -1 ? null : arg.substring(equals + 1);
+            try {
+                if (name.equals("--games")) {
+                    nbGames = Long.parseLong(value);
+                } else if (name.equals("--holes")) {
+                    nbHoles = Integer.parseInt(value);
+                } else if (name.equals("--colors")) {
+                    nbColors = Integer.parseInt(value);
+                } else if (name.equals("--rows")) {
+                    nbRows = Integer.parseInt(value);
+                } else if (name.equals("--strategy")) {
+                    strategy = Strategy.valueOf(value.toUpperCase(Locale.US));
+                } else if (name.equals("--threads")) {
+                    nbThreads = Integer.parseInt(value);
+                } else if (name.equals("--seed")) {
+                    seed = Long.parseLong(value);
+                } else if (name.equals("--no-cache")) {
+                    cache = false;
+                } else {
+                    usage();
+                }
+            } catch (final RuntimeException e) {
+                usage();
+            }
+        }
+
+        final Simulator simulator = new Simulator(nbHoles, nbRows, nbColors, strategy, cache);
+        final Result result = simulator.run(nbGames, nbThreads, seed);
+
+        final double seconds = result.mDurationNs / 1e9;
+        System.out.printf(Locale.US, "%d games (%d holes, %d colors, %d rows, %s, seed %d) on %d threads in %.2f s: %.0f games/s%n",
+                result.getNbGames(), nbHoles, nbColors, nbRows, strategy, seed, nbThreads, seconds, result.getNbGames() / seconds);
+        System.out.printf(Locale.US, "Won: %.4f%%, mean guesses: %.4f%n", 100.0 * result.getNbWon() / result.getNbGames(),
+                result.getMeanGuesses());
+        System.out.println("Guesses      Games");
+        for (int i = 1; i < result.mHistogram.length; i++) {
+            if (result.mHistogram[i] != 0) {
+                System.out.printf(Locale.US, "%7d %10d%n", i, result.mHistogram[i]);
+            }
+        }
+        if (result.mHistogram[0] != 0) {
+            System.out.printf(Locale.US, "%7s %10d%n", "lost", result.mHistogram[0]);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret;
+
+import java.io.File;
+
+import android.app.Application;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+
+import org.jraf.android.colorsecret.model.GameJournal;
+import org.jraf.android.colorsecret.model.Instrumentation;
+import org.jraf.android.colorsecret.stats.StatsStore;
+import org.jraf.android.colorsecret.util.ExecutorUtil;
+import org.jraf.android.colorsecret.util.LogUtil;
+import org.jraf.android.colorsecret.util.SoundUtil;
+
+public class ColorSecretApplication extends Application {
+    private static final String STATS_FILE_NAME = "stats.bin";
+    private static final String GAME_JOURNAL_FILE_NAME = "game.journal";
+    private static final long GAME_JOURNAL_COMMIT_DELAY_MS = 500;
+
+    private static long sStartUptime;
+
+    private StatsStore mStatsStore;
+    private GameJournal mGameJournal;
+
+    @Override
+    public void onCreate() {
+        sStartUptime = SystemClock.uptimeMillis();
+        super.onCreate();
+        if (Constants.LOGD) LogUtil.installModelLogger();
+        Instrumentation.setEnabled(Constants.INSTRUMENTATION);
+
+        mGameJournal = new GameJournal(new File(getFilesDir(), GAME_JOURNAL_FILE_NAME), ExecutorUtil.getBackgroundExecutor(),
+                GAME_JOURNAL_COMMIT_DELAY_MS);
+        // the first activity needs the game in progress, if any: read it first, so that it is usually ready by then
+        mGameJournal.replay(null);
+
+        final SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
+        if (sharedPreferences.getBoolean(Constants.PREF_SOUND_ENABLED, true)) {
+            // the first sound is played by the first activity, so start loading them as early as possible
+            SoundUtil.warmUp(this);
+        }
+
+        mStatsStore = new StatsStore(new File(getFilesDir(), STATS_FILE_NAME), ExecutorUtil.getBackgroundExecutor());
+        // the totals kept in the preferences before the games were recorded, they are not updated anymore
+        mStatsStore.addBaseline(sharedPreferences.getInt(Constants.PREF_TOTAL_GAMES, 0), sharedPreferences.getInt(
+                Constants.PREF_TOTAL_WON, 0), sharedPreferences.getInt(Constants.PREF_TOTAL_SCORE, 0));
+        mStatsStore.load(null);
+    }
+
+    public StatsStore getStatsStore() {
+        return mStatsStore;
+    }
+
+    public GameJournal getGameJournal() {
+        return mGameJournal;
+    }
+
+    /**
+     * @return the time at which the application was created, in the {@link SystemClock#uptimeMillis()} time base.
+     */
+    public static long getStartUptime() {
+        return sStartUptime;
+    }
+}
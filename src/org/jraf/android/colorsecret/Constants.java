@@ -29,14 +29,31 @@ public class Constants {
 
     public static final int DEFAULT_NB_ROWS = 12;
     public static final int DEFAULT_NB_HOLES = 4;
+    /**
+     * The UI can only show the colors of {@link org.jraf.android.colorsecret.model.CodePeg}.
+     */
+    public static final int DEFAULT_NB_COLORS = 6;
 
     public static final boolean LOGD = true;
+    /**
+     * Draw the board with a single {@link org.jraf.android.colorsecret.view.BoardView} instead of one view per peg.
+     */
+    public static final boolean USE_BOARD_VIEW = false;
+    /**
+     * Measure the hot paths of the game, see {@link org.jraf.android.colorsecret.model.Instrumentation}. The values are dumped when the
+     * main activity is paused.
+     */
+    public static final boolean INSTRUMENTATION = false;
 
     public static final String PREF_PICKER_SHOWN = "PREF_PICKER_SHOWN";
+    /*
+     * Totals of the games played before they were recorded by StatsStore, only read.
+     */
     public static final String PREF_TOTAL_GAMES = "PREF_TOTAL_GAMES";
     public static final String PREF_TOTAL_WON = "PREF_TOTAL_WON";
     public static final String PREF_TOTAL_SCORE = "PREF_TOTAL_SCORE";
     public static final String PREF_SOUND_ENABLED = "PREF_SOUND_ENABLED";
+    public static final String PREF_HARD_MODE = "PREF_HARD_MODE";
     public static final String PREF_FIRST_USE = "PREF_FIRST_USE";
 
 }
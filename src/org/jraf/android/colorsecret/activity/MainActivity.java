@@ -24,7 +24,6 @@
  */
 package org.jraf.android.colorsecret.activity;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.Random;
 
@@ -33,10 +32,14 @@ import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.DialogInterface;
 import android.content.SharedPreferences;
-import android.content.SharedPreferences.Editor;
 import android.media.AudioManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -48,6 +51,7 @@ import android.view.View.OnClickListener;
 import android.view.View.OnFocusChangeListener;
 import android.view.View.OnTouchListener;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.webkit.WebView;
 import android.widget.AbsoluteLayout;
 import android.widget.AbsoluteLayout.LayoutParams;
@@ -56,16 +60,28 @@ import android.widget.LinearLayout;
 import android.widget.ScrollView;
 import android.widget.TextView;
 
+import org.jraf.android.colorsecret.ColorSecretApplication;
 import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.Board;
 import org.jraf.android.colorsecret.model.CodePeg;
 import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.GameCodec;
+import org.jraf.android.colorsecret.model.GameJournal;
 import org.jraf.android.colorsecret.model.HintPeg;
+import org.jraf.android.colorsecret.model.Instrumentation;
 import org.jraf.android.colorsecret.model.Game.GuessResult;
-import org.jraf.android.colorsecret.util.IoUtil;
+import org.jraf.android.colorsecret.solver.HintEngine;
+import org.jraf.android.colorsecret.stats.GameRecord;
+import org.jraf.android.colorsecret.stats.Stats;
+import org.jraf.android.colorsecret.stats.StatsStore;
+import org.jraf.android.colorsecret.util.ExecutorUtil;
+import org.jraf.android.colorsecret.util.InstrumentationUtil;
 import org.jraf.android.colorsecret.util.PegUtil;
+import org.jraf.android.colorsecret.util.RawResourceCache;
 import org.jraf.android.colorsecret.util.SoundUtil;
 import org.jraf.android.colorsecret.util.StringUtil;
 import org.jraf.android.colorsecret.util.UiUtil;
+import org.jraf.android.colorsecret.view.BoardView;
 import org.jraf.android.colorsecret.R;
 
 public class MainActivity extends Activity {
@@ -78,14 +94,48 @@ public class MainActivity extends Activity {
     private static final int DIALOG_CONFIRM_EXIT = 4;
     private static final int DIALOG_HELP = 5;
 
+    private static final String STATE_GAME = "STATE_GAME";
+    private static final String STATE_GAME_START_TIME = "STATE_GAME_START_TIME";
+
+    private static final long HINT_SOUND_INTERVAL_MS = 200;
+
+    private static final Instrumentation.Probe NEW_GAME_PROBE = Instrumentation.newProbe("MainActivity.newGame");
+    private static final Instrumentation.Probe DRAG_EVENT_PROBE = Instrumentation.newProbe("MainActivity.handleDragEvent");
+
     private int mNbHoles;
     private int mNbRows;
+    private int mNbColors;
 
     private Game mGame;
+    /**
+     * When the game started, in milliseconds since the epoch.
+     */
+    private long mGameStartTime;
+    private StatsStore mStatsStore;
+    private GameJournal mGameJournal;
+    /**
+     * The contents of the game over dialog for the current game, if prepared.
+     */
+    private View mGameOverView;
+
+    private final Handler mHandler = new Handler();
+    private HintEngine mHintEngine;
+    /**
+     * Incremented each time the current guess changes, so that a hint computed for a previous guess is not shown.
+     */
+    private int mHintToken;
 
     private ViewGroup mRootView;
     private final int[] mRootXy = new int[2];
     private ViewGroup mBoardView;
+    /**
+     * Number of holes of the row views currently in {@link #mBoardView}.
+     */
+    private int mRowViewsNbHoles;
+    /**
+     * Used instead of {@link #mBoardView} if {@link Constants#USE_BOARD_VIEW} is set.
+     */
+    private BoardView mCanvasBoardView;
     private LayoutInflater mLayoutInflater;
 
     protected int mCurrentRowIndex;
@@ -97,10 +147,27 @@ public class MainActivity extends Activity {
     private boolean mDragging;
     private View mDraggingPegView;
 
+    /*
+     * Hit-test geometry of the holes of the current row, in screen coordinates, see updateHoleBounds(). The holes of a row share the same
+     * top and bottom.
+     */
+    private int mHoleBoundsRowIndex = -1;
+    private LinearLayout mHoleBoundsCodePegs;
+    private int[] mHoleLefts = new int[0];
+    private int[] mHoleRights = new int[0];
+    private int mHoleTop;
+    private int mHoleBottom;
+    private final int[] mPegXy = new int[2];
+
+    private boolean mStartupLogged;
+
     @Override
     public void onCreate(final Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.main);
+        final ViewTreeObserver viewTreeObserver = findViewById(R.id.root).getViewTreeObserver();
+        viewTreeObserver.addOnGlobalLayoutListener(mHoleBoundsInvalidator);
+        viewTreeObserver.addOnScrollChangedListener(mHoleBoundsInvalidator);
 
         final SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
         final boolean soundEnabled = sharedPreferences.getBoolean(Constants.PREF_SOUND_ENABLED, true);
@@ -109,12 +176,120 @@ public class MainActivity extends Activity {
 
         final boolean firstUse = sharedPreferences.getBoolean(Constants.PREF_FIRST_USE, true);
         if (firstUse) {
-            showDialog(DIALOG_HELP);
+            // show the help once it is decoded, rather than making the first frame wait for it
+            RawResourceCache.preload(this, R.raw.help, new Runnable() {
+                public void run() {
+                    if (!isFinishing()) showDialog(DIALOG_HELP);
+                }
+            });
             sharedPreferences.edit().putBoolean(Constants.PREF_FIRST_USE, false).commit();
+        } else {
+            RawResourceCache.preload(this, R.raw.help, null);
         }
 
         mLayoutInflater = LayoutInflater.from(this);
-        newGame();
+
+        mStatsStore = ((ColorSecretApplication) getApplication()).getStatsStore();
+        if (!mStatsStore.isLoaded()) {
+            // the store is loaded on the background executor, which runs its tasks in order: this runs once it is done
+            ExecutorUtil.getBackgroundExecutor().execute(new Runnable() {
+                public void run() {
+                    mHandler.post(new Runnable() {
+                        public void run() {
+                            if (mGame != null) refreshScore();
+                        }
+                    });
+                }
+            });
+        }
+
+        mHintEngine = new HintEngine(ExecutorUtil.getBackgroundExecutor(), getCacheDir());
+        mGameJournal = ((ColorSecretApplication) getApplication()).getGameJournal();
+
+        Game savedGame = null;
+        if (savedInstanceState != null) {
+            final byte[] savedGameData = savedInstanceState.getByteArray(STATE_GAME);
+            if (savedGameData != null) {
+                try {
+                    savedGame = GameCodec.decode(savedGameData);
+                    mGameStartTime = savedInstanceState.getLong(STATE_GAME_START_TIME, System.currentTimeMillis());
+                } catch (final IllegalArgumentException e) {
+                    // should never happen, but a new game is better than a crash
+                    if (Constants.LOGD) Log.w(TAG, "Could not restore the game", e);
+                }
+            }
+        } else if (mGameJournal.isReplayed()) {
+            // the process may have been killed in the middle of a game
+            savedGame = getResumableGame(mGameJournal.getLastGame());
+            // the time spent before is not known
+            mGameStartTime = System.currentTimeMillis();
+        } else {
+            // the journal is read on the background executor, which runs its tasks in order: this runs once it is done
+            ExecutorUtil.getBackgroundExecutor().execute(new Runnable() {
+                public void run() {
+                    mHandler.post(new Runnable() {
+                        public void run() {
+                            if (!isFinishing()) onGameJournalReplayed();
+                        }
+                    });
+                }
+            });
+        }
+        if (savedGame == null) {
+            newGame();
+        } else {
+            showGame(savedGame);
+        }
+    }
+
+    /**
+     * @return the given game if it can still be played, {@code null} otherwise.
+     */
+    private static Game getResumableGame(final Game game) {
+        return game == null || game.isOver() ? null : game;
+    }
+
+    /**
+     * Called when the journal was read after a new game was started: resumes the game of the journal instead, unless the new one has
+     * already been played.
+     */
+    private void onGameJournalReplayed() {
+        final Game replayedGame = getResumableGame(mGameJournal.getReplayedGame());
+        if (replayedGame == null || mGame.getCurrentGuess() != 0 || !mGame.getBoard().isEmpty(0)) return;
+        mGameStartTime = System.currentTimeMillis();
+        showGame(replayedGame);
+    }
+
+    @Override
+    protected void onSaveInstanceState(final Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putByteArray(STATE_GAME, GameCodec.encode(mGame));
+        outState.putLong(STATE_GAME_START_TIME, mGameStartTime);
+    }
+
+    @Override
+    public void onWindowFocusChanged(final boolean hasFocus) {
+        super.onWindowFocusChanged(hasFocus);
+        if (Constants.LOGD && hasFocus && !mStartupLogged) {
+            // the first frame has been drawn: compare with and without sounds to see what loading them costs
+            mStartupLogged = true;
+            Log.d(TAG, "Startup took " + (SystemClock.uptimeMillis() - ColorSecretApplication.getStartUptime()) + " ms (sound enabled: "
+                    + PreferenceManager.getDefaultSharedPreferences(this).getBoolean(Constants.PREF_SOUND_ENABLED, true) + ")");
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mGameJournal.commitNow();
+        InstrumentationUtil.dump(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        mHintEngine.cancelHint();
+        ExecutorUtil.cancelEffects();
+        super.onDestroy();
     }
 
 
@@ -132,14 +307,34 @@ public class MainActivity extends Activity {
 
 
     private void newGame() {
+        final long start = Instrumentation.start();
+        // the sounds of the previous game are not relevant anymore
+        ExecutorUtil.cancelEffects();
         SoundUtil.play(this, R.raw.newgame0);
 
-        mNbHoles = Constants.DEFAULT_NB_HOLES;
-        mNbRows = Constants.DEFAULT_NB_ROWS;
+        final Game game = new Game(Constants.DEFAULT_NB_HOLES, Constants.DEFAULT_NB_ROWS, Constants.DEFAULT_NB_COLORS);
+        game.setRandomSecret();
+//        game.setSecret(CodePeg.RED, CodePeg.GREEN, CodePeg.YELLOW, CodePeg.YELLOW);
+        mGameStartTime = System.currentTimeMillis();
+        showGame(game);
+        NEW_GAME_PROBE.stop(start);
+    }
 
-        mGame = new Game(mNbHoles, mNbRows);
-        mGame.setRandomSecret();
-//        mGame.setSecret(CodePeg.RED, CodePeg.GREEN, CodePeg.YELLOW, CodePeg.YELLOW);
+    /**
+     * Shows the given game, which can be a new one or a game in progress.
+     */
+    private void showGame(final Game game) {
+        mGame = game;
+        mNbHoles = game.getNbHoles();
+        mNbRows = game.getNbRows();
+        mNbColors = game.getNbColors();
+        final SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
+        mGame.setHardMode(sharedPreferences.getBoolean(Constants.PREF_HARD_MODE, false));
+        mHintToken++;
+        mHintEngine.setGame(mGame);
+        mGameJournal.startGame(mGame);
+        mGameOverView = null;
+        Looper.myQueue().addIdleHandler(mPrepareGameOverIdleHandler);
 
         mRootView = (ViewGroup) findViewById(R.id.root);
 
@@ -147,10 +342,18 @@ public class MainActivity extends Activity {
 
         createPegPicker();
         mBoardView = (ViewGroup) findViewById(R.id.board);
-        mBoardView.removeAllViews();
-        createRows();
-        mCurrentRowIndex = 0;
-        setRowActive(mCurrentRowIndex);
+        // the row views may be replaced
+        mHoleBoundsRowIndex = -1;
+        if (Constants.USE_BOARD_VIEW) {
+            mCanvasBoardView = (BoardView) findViewById(R.id.boardView);
+            mBoardView.setVisibility(View.GONE);
+            mCanvasBoardView.setVisibility(View.VISIBLE);
+            mCanvasBoardView.setOnBoardClickListener(mOnBoardClickListener);
+            mCanvasBoardView.setGame(mGame);
+        } else {
+            createRows();
+        }
+        showRows();
 
         ((ScrollView) mRootView.findViewById(R.id.scrollView)).smoothScrollTo(0, 0);
 
@@ -162,13 +365,95 @@ public class MainActivity extends Activity {
      * Layout.
      */
 
+    /**
+     * Creates the views of the rows, reusing the ones of the previous game when they have the same number of holes.
+     */
     private void createRows() {
-        for (int i = 0; i < mNbRows; i++) {
+        if (mRowViewsNbHoles != mNbHoles) {
+            mBoardView.removeAllViews();
+            mRowViewsNbHoles = mNbHoles;
+        }
+        final int nbRowViews = mBoardView.getChildCount();
+        if (nbRowViews > mNbRows) {
+            mBoardView.removeViews(mNbRows, nbRowViews - mNbRows);
+        }
+        for (int i = 0; i < nbRowViews && i < mNbRows; i++) {
+            resetRow((ViewGroup) mBoardView.getChildAt(i));
+        }
+        for (int i = nbRowViews; i < mNbRows; i++) {
             final View row = createRow(i);
             mBoardView.addView(row);
         }
     }
 
+    /**
+     * Puts a row view back in the state {@link #createRow(int)} creates it in.
+     */
+    private void resetRow(final ViewGroup row) {
+        row.setBackgroundResource(0);
+
+        final LinearLayout containerCodePegs = (LinearLayout) row.findViewById(R.id.container_codePegs);
+        for (int i = 0; i < mNbHoles; i++) {
+            final View codePegView = containerCodePegs.getChildAt(i);
+            codePegView.setBackgroundResource(R.drawable.peg_bg);
+            codePegView.setFocusable(false);
+            codePegView.setOnFocusChangeListener(null);
+            codePegView.setOnClickListener(null);
+            codePegView.setClickable(false);
+            ((ImageView) codePegView.findViewById(R.id.peg)).setImageResource(R.drawable.peg_code_empty);
+        }
+
+        final LinearLayout containerHintPegs = (LinearLayout) row.findViewById(R.id.container_hintPegs);
+        containerHintPegs.setVisibility(View.VISIBLE);
+        resetHintPegs((LinearLayout) containerHintPegs.findViewById(R.id.container_hintPegs1));
+        resetHintPegs((LinearLayout) containerHintPegs.findViewById(R.id.container_hintPegs2));
+
+        final View buttonOk = row.findViewById(R.id.button_ok);
+        buttonOk.setEnabled(false);
+        buttonOk.setVisibility(View.INVISIBLE);
+    }
+
+    private void resetHintPegs(final LinearLayout container) {
+        final int childCount = container.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            ((ImageView) container.getChildAt(i).findViewById(R.id.peg)).setImageResource(R.drawable.peg_hint_empty);
+        }
+    }
+
+    /**
+     * Shows the pegs already played in the game, and activates the current row if the game is not over.
+     */
+    private void showRows() {
+        final int currentGuess = mGame.getCurrentGuess();
+        final boolean won = currentGuess < mNbRows && mGame.getScoringEngine().isWinning(mGame.getScore(currentGuess));
+        // the board view draws the played rows straight from the model
+        if (mCanvasBoardView == null) {
+            final Board board = mGame.getBoard();
+            for (int i = 0; i < mNbRows; i++) {
+                final LinearLayout containerCodePegs = (LinearLayout) mBoardView.getChildAt(i).findViewById(R.id.container_codePegs);
+                for (int hole = 0; hole < mNbHoles; hole++) {
+                    final CodePeg codePeg = board.getCodePeg(i, hole);
+                    if (codePeg != null) {
+                        ((ImageView) containerCodePegs.getChildAt(hole).findViewById(R.id.peg)).setImageResource(PegUtil
+                                .getDrawable(codePeg));
+                    }
+                }
+                if (i < currentGuess || i == currentGuess && won) {
+                    showHints(i, board.getHintPegs(i));
+                    setRowInactive(i);
+                }
+            }
+        }
+        if (currentGuess < mNbRows && !won) {
+            mCurrentRowIndex = currentGuess;
+            setRowActive(mCurrentRowIndex);
+            updateOkButton();
+        } else {
+            mCurrentRowIndex = Math.min(currentGuess, mNbRows - 1);
+        }
+        refreshRemainingSecrets();
+    }
+
     private View createRow(final int rowIndex) {
         final LinearLayout res = (LinearLayout) mLayoutInflater.inflate(R.layout.row, null, false);
 
@@ -208,34 +493,36 @@ public class MainActivity extends Activity {
 
     private void createPegPicker() {
         final ViewGroup pegPicker = (ViewGroup) mRootView.findViewById(R.id.pegPicker);
-        pegPicker.removeAllViews();
-        for (final CodePeg codePeg : CodePeg.values()) {
-            final View pegView = mLayoutInflater.inflate(R.layout.peg, pegPicker, false);
-            final LinearLayout.LayoutParams pegLayoutParams = (android.widget.LinearLayout.LayoutParams) pegView.getLayoutParams();
-            pegLayoutParams.weight = 1;
-            pegView.setLayoutParams(pegLayoutParams);
-
-            final ImageView pegImageView = (ImageView) pegView.findViewById(R.id.peg);
-            pegImageView.setImageResource(PegUtil.getDrawable(codePeg));
-
-            final LinearLayout.LayoutParams pegImageLayoutParams = (android.widget.LinearLayout.LayoutParams) pegImageView
-                    .getLayoutParams();
-            pegImageLayoutParams.leftMargin = 1;
-            pegImageLayoutParams.topMargin = 1;
-            pegImageLayoutParams.bottomMargin = 1;
-            pegImageLayoutParams.rightMargin = 1;
-            pegImageView.setLayoutParams(pegImageLayoutParams);
-
-            pegPicker.addView(pegView);
-
-            pegView.setOnTouchListener(new OnTouchListener() {
-                public boolean onTouch(final View v, final MotionEvent event) {
-                    v.setBackgroundResource(R.drawable.peg_code_bg_dragging);
-                    mDragingPeg = codePeg;
-                    handleDragEvent(event);
-                    return true;
-                }
-            });
+        // the picker does not depend on the game: only create it once
+        if (pegPicker.getChildCount() == 0) {
+            for (final CodePeg codePeg : CodePeg.values()) {
+                final View pegView = mLayoutInflater.inflate(R.layout.peg, pegPicker, false);
+                final LinearLayout.LayoutParams pegLayoutParams = (android.widget.LinearLayout.LayoutParams) pegView.getLayoutParams();
+                pegLayoutParams.weight = 1;
+                pegView.setLayoutParams(pegLayoutParams);
+
+                final ImageView pegImageView = (ImageView) pegView.findViewById(R.id.peg);
+                pegImageView.setImageResource(PegUtil.getDrawable(codePeg));
+
+                final LinearLayout.LayoutParams pegImageLayoutParams = (android.widget.LinearLayout.LayoutParams) pegImageView
+                        .getLayoutParams();
+                pegImageLayoutParams.leftMargin = 1;
+                pegImageLayoutParams.topMargin = 1;
+                pegImageLayoutParams.bottomMargin = 1;
+                pegImageLayoutParams.rightMargin = 1;
+                pegImageView.setLayoutParams(pegImageLayoutParams);
+
+                pegPicker.addView(pegView);
+
+                pegView.setOnTouchListener(new OnTouchListener() {
+                    public boolean onTouch(final View v, final MotionEvent event) {
+                        v.setBackgroundResource(R.drawable.peg_code_bg_dragging);
+                        mDragingPeg = codePeg;
+                        handleDragEvent(event);
+                        return true;
+                    }
+                });
+            }
         }
 
         final SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
@@ -244,27 +531,43 @@ public class MainActivity extends Activity {
     }
 
     private void refreshScore() {
-        final SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
-        final int totalGames = sharedPreferences.getInt(Constants.PREF_TOTAL_GAMES, 0);
-        final int totalWon = sharedPreferences.getInt(Constants.PREF_TOTAL_WON, 0);
-        final int totalScore = sharedPreferences.getInt(Constants.PREF_TOTAL_SCORE, 0);
+        final Stats totalStats = mStatsStore.getTotalStats();
+        final int totalGames = totalStats.getNbGames();
+        final int totalWon = totalStats.getNbWon();
+        final long totalScore = totalStats.getTotalScore();
         ((TextView) mRootView.findViewById(R.id.totalGames)).setText(getString(R.string.score_totalGames, totalGames));
         ((TextView) mRootView.findViewById(R.id.totalWon)).setText(getString(R.string.score_totalWon, totalWon));
         ((TextView) mRootView.findViewById(R.id.totalScore)).setText(getString(R.string.score_totalScore, totalScore));
     }
 
+    private void refreshRemainingSecrets() {
+        ((TextView) mRootView.findViewById(R.id.remainingSecrets)).setText(getString(R.string.score_remainingSecrets, mGame
+                .getNbRemainingSecrets()));
+    }
+
 
     /*
      * Drag and drop.
      */
 
     protected void handleDragEvent(final MotionEvent event) {
+        final long start = Instrumentation.start();
+        try {
+            doHandleDragEvent(event);
+        } finally {
+            DRAG_EVENT_PROBE.stop(start);
+        }
+    }
+
+    private void doHandleDragEvent(final MotionEvent event) {
         final int eventX = (int) event.getRawX();
         final int eventY = (int) event.getRawY();
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
                 setRowReceivingDrag(mCurrentRowIndex, true);
                 mDragging = true;
+                mSelectedPegHoleIndex = -1;
+                mPrevSelectedPegHoleIndex = -1;
                 mDraggingPegView.setVisibility(View.VISIBLE);
                 final ImageView pegImageView = (ImageView) mDraggingPegView.findViewById(R.id.peg);
                 pegImageView.setImageResource(PegUtil.getDrawable(mDragingPeg));
@@ -277,8 +580,10 @@ public class MainActivity extends Activity {
                 setRowReceivingDrag(mCurrentRowIndex, false);
                 mDragging = false;
                 if (mSelectedPegHoleIndex != -1) {
-                    ((ImageView) mSelectedPegView.findViewById(R.id.peg)).setImageResource(PegUtil.getDrawable(mDragingPeg));
                     mGame.setGuess(mCurrentRowIndex, mSelectedPegHoleIndex, mDragingPeg);
+                    mGameJournal.setGuess(mCurrentRowIndex, mSelectedPegHoleIndex, mDragingPeg.ordinal());
+                    showSelectedPeg(mDragingPeg);
+                    onGuessChanged();
                     updateOkButton();
                 }
                 mDraggingPegView.setVisibility(View.GONE);
@@ -294,24 +599,22 @@ public class MainActivity extends Activity {
                     final int newY = eventY - mRootXy[1] - mDraggingPegView.getHeight() / 2;
                     moveDraggingPegView(newX, newY);
 
-                    final ViewGroup row = (ViewGroup) mBoardView.getChildAt(mCurrentRowIndex);
-                    final LinearLayout containerCodePegs = (LinearLayout) row.findViewById(R.id.container_codePegs);
-                    final int childCount = containerCodePegs.getChildCount();
-                    final int[] pegXy = new int[2];
-                    mSelectedPegHoleIndex = -1;
-                    for (int i = 0; i < childCount; i++) {
-                        final View pegView = containerCodePegs.getChildAt(i);
-                        pegView.getLocationOnScreen(pegXy);
-                        final int pegX = pegXy[0];
-                        final int pegY = pegXy[1];
-                        final int pegWidth = pegView.getWidth();
-                        final int pegHeight = pegView.getHeight();
-                        if (pegX < eventX && eventX < pegX + pegWidth && pegY < eventY && eventY < pegY + pegHeight) {
-                            pegView.setBackgroundResource(R.drawable.peg_code_bg_dragging);
-                            mSelectedPegHoleIndex = i;
-                            mSelectedPegView = pegView;
-                        } else {
-                            pegView.setBackgroundResource(0);
+                    if (mCanvasBoardView != null) {
+                        mSelectedPegHoleIndex = mCanvasBoardView.getActiveRowHoleAt(eventX, eventY);
+                        mCanvasBoardView.setDragTarget(mCurrentRowIndex, mSelectedPegHoleIndex);
+                    } else {
+                        if (mHoleBoundsRowIndex != mCurrentRowIndex) {
+                            updateHoleBounds();
+                        }
+                        mSelectedPegHoleIndex = getHoleAt(eventX, eventY);
+                        if (mSelectedPegHoleIndex != mPrevSelectedPegHoleIndex) {
+                            if (mPrevSelectedPegHoleIndex != -1) {
+                                mHoleBoundsCodePegs.getChildAt(mPrevSelectedPegHoleIndex).setBackgroundResource(0);
+                            }
+                            if (mSelectedPegHoleIndex != -1) {
+                                mSelectedPegView = mHoleBoundsCodePegs.getChildAt(mSelectedPegHoleIndex);
+                                mSelectedPegView.setBackgroundResource(R.drawable.peg_code_bg_dragging);
+                            }
                         }
                     }
                     if (mSelectedPegHoleIndex != -1) {
@@ -326,6 +629,59 @@ public class MainActivity extends Activity {
     }
 
 
+    /**
+     * Computes the bounds of the holes of the current row. They stay valid until the next layout or scroll.
+     */
+    private void updateHoleBounds() {
+        if (mHoleLefts.length != mNbHoles) {
+            mHoleLefts = new int[mNbHoles];
+            mHoleRights = new int[mNbHoles];
+        }
+        final ViewGroup row = (ViewGroup) mBoardView.getChildAt(mCurrentRowIndex);
+        mHoleBoundsCodePegs = (LinearLayout) row.findViewById(R.id.container_codePegs);
+        for (int i = 0; i < mNbHoles; i++) {
+            final View pegView = mHoleBoundsCodePegs.getChildAt(i);
+            pegView.getLocationOnScreen(mPegXy);
+            mHoleLefts[i] = mPegXy[0];
+            mHoleRights[i] = mPegXy[0] + pegView.getWidth();
+            mHoleTop = mPegXy[1];
+            mHoleBottom = mPegXy[1] + pegView.getHeight();
+        }
+        mHoleBoundsRowIndex = mCurrentRowIndex;
+    }
+
+    /**
+     * @return the hole of the current row at the given position on the screen, or -1 if there is none.
+     */
+    private int getHoleAt(final int x, final int y) {
+        if (y <= mHoleTop || y >= mHoleBottom || x <= mHoleLefts[0]) return -1;
+        // the holes all have the same width: find the candidate hole directly, then check its exact bounds
+        final int pitch = mNbHoles > 1 ? mHoleLefts[1] - mHoleLefts[0] : mHoleRights[0] - mHoleLefts[0];
+        if (pitch <= 0) return -1;
+        final int res = (x - mHoleLefts[0]) / pitch;
+        if (res >= mNbHoles || x >= mHoleRights[res]) return -1;
+        return res;
+    }
+
+    private final HoleBoundsInvalidator mHoleBoundsInvalidator = new HoleBoundsInvalidator();
+
+    private class HoleBoundsInvalidator implements ViewTreeObserver.OnGlobalLayoutListener, ViewTreeObserver.OnScrollChangedListener {
+        public void onGlobalLayout() {
+            if (mHoleBoundsRowIndex == -1) return;
+            // moving the dragged peg triggers a layout at each move event: only invalidate if the row has actually moved
+            final View firstPegView = mHoleBoundsCodePegs.getChildAt(0);
+            firstPegView.getLocationOnScreen(mPegXy);
+            if (mPegXy[0] != mHoleLefts[0] || mPegXy[1] != mHoleTop || firstPegView.getWidth() != mHoleRights[0] - mHoleLefts[0]) {
+                mHoleBoundsRowIndex = -1;
+            }
+        }
+
+        public void onScrollChanged() {
+            mHoleBoundsRowIndex = -1;
+        }
+    }
+
+
     @SuppressWarnings("deprecation")
     // I know AbsoluteLayout is deprecated, but in this case, it makes sense to use it
     private void moveDraggingPegView(final int newX, final int newY) {
@@ -341,6 +697,10 @@ public class MainActivity extends Activity {
      */
 
     private void setRowActive(final int rowIndex) {
+        if (mCanvasBoardView != null) {
+            mCanvasBoardView.setActiveRow(rowIndex);
+            return;
+        }
         final ViewGroup row = (ViewGroup) mBoardView.getChildAt(rowIndex);
         row.setBackgroundResource(R.drawable.row_bg_active);
         final LinearLayout containerCodePegs = (LinearLayout) row.findViewById(R.id.container_codePegs);
@@ -378,6 +738,11 @@ public class MainActivity extends Activity {
     }
 
     private void setRowInactive(final int rowIndex) {
+        if (mCanvasBoardView != null) {
+            // only the active row is drawn differently
+            mCanvasBoardView.setActiveRow(-1);
+            return;
+        }
         final ViewGroup row = (ViewGroup) mBoardView.getChildAt(rowIndex);
         row.setBackgroundResource(R.drawable.row_bg_inactive);
         final LinearLayout containerCodePegs = (LinearLayout) row.findViewById(R.id.container_codePegs);
@@ -393,6 +758,13 @@ public class MainActivity extends Activity {
     }
 
     private void setRowReceivingDrag(final int rowIndex, final boolean receiving) {
+        if (mCanvasBoardView != null) {
+            mCanvasBoardView.setDragTarget(receiving ? rowIndex : -1, -1);
+            if (!receiving) {
+                resetPegPickerBackgrounds();
+            }
+            return;
+        }
         final ViewGroup row = (ViewGroup) mBoardView.getChildAt(rowIndex);
         if (receiving) {
             row.setBackgroundResource(R.drawable.row_bg_dragging);
@@ -400,19 +772,25 @@ public class MainActivity extends Activity {
             row.setBackgroundResource(R.drawable.row_bg_active);
             // reset all the row holes / pegs to default bg
             final LinearLayout containerCodePegs = (LinearLayout) row.findViewById(R.id.container_codePegs);
-            int childCount = containerCodePegs.getChildCount();
+            final int childCount = containerCodePegs.getChildCount();
             for (int i = 0; i < childCount; i++) {
                 final View codePegView = containerCodePegs.getChildAt(i);
                 codePegView.setBackgroundResource(R.drawable.peg_bg);
             }
 
-            // reset all the dragging pegs to default bg
-            final ViewGroup pegPicker = (ViewGroup) mRootView.findViewById(R.id.pegPicker);
-            childCount = pegPicker.getChildCount();
-            for (int i = 0; i < childCount; i++) {
-                final View codePegView = pegPicker.getChildAt(i);
-                codePegView.setBackgroundResource(0);
-            }
+            resetPegPickerBackgrounds();
+        }
+    }
+
+    /**
+     * Resets all the dragging pegs to default bg.
+     */
+    private void resetPegPickerBackgrounds() {
+        final ViewGroup pegPicker = (ViewGroup) mRootView.findViewById(R.id.pegPicker);
+        final int childCount = pegPicker.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View codePegView = pegPicker.getChildAt(i);
+            codePegView.setBackgroundResource(0);
         }
     }
 
@@ -435,14 +813,10 @@ public class MainActivity extends Activity {
             case DIALOG_GAME_OVER:
                 builder.setTitle(R.string.dialog_gameOver_title);
                 builder.setIcon(android.R.drawable.ic_dialog_alert);
-                final View dialogContents = mLayoutInflater.inflate(R.layout.dialog_game_over, null, false);
-                final LinearLayout container = (LinearLayout) dialogContents.findViewById(R.id.container_codePegs);
-                for (final CodePeg codePeg : mGame.getSecret()) {
-                    final View pegView = mLayoutInflater.inflate(R.layout.peg, container, false);
-                    ((ImageView) pegView.findViewById(R.id.peg)).setImageResource(PegUtil.getDrawable(codePeg));
-                    container.addView(pegView);
-                }
-                builder.setView(dialogContents);
+                if (mGameOverView == null) prepareGameOverView();
+                builder.setView(mGameOverView);
+                // a view can only be in one dialog
+                mGameOverView = null;
                 builder.setPositiveButton(R.string.dialog_gameOver_positive, mNewGameOnClickListener);
                 builder.setCancelable(false);
             break;
@@ -478,14 +852,7 @@ public class MainActivity extends Activity {
                 builder.setTitle(R.string.dialog_help_title);
                 builder.setIcon(android.R.drawable.ic_dialog_info);
                 final WebView webView = new WebView(this);
-                String html;
-                try {
-                    html = IoUtil.inputStreamToString(getResources().openRawResource(R.raw.help));
-                } catch (final IOException e) {
-                    // should never happen
-                    throw new AssertionError("Could not read eula file");
-                }
-                html = StringUtil.reworkForWebView(html);
+                final String html = StringUtil.reworkForWebView(RawResourceCache.getString(this, R.raw.help));
                 webView.loadData(html, "text/html", "utf-8");
                 builder.setView(webView);
                 builder.setPositiveButton(android.R.string.ok, null);
@@ -495,105 +862,204 @@ public class MainActivity extends Activity {
         return builder.create();
     }
 
+    /**
+     * Inflates the contents of the game over dialog, which only depend on the secret, while the UI thread has nothing else to do.
+     */
+    private final MessageQueue.IdleHandler mPrepareGameOverIdleHandler = new MessageQueue.IdleHandler() {
+        public boolean queueIdle() {
+            if (mGameOverView == null && mGame != null && !mGame.isOver()) prepareGameOverView();
+            // only once per game
+            return false;
+        }
+    };
+
+    private void prepareGameOverView() {
+        mGameOverView = mLayoutInflater.inflate(R.layout.dialog_game_over, null, false);
+        final LinearLayout container = (LinearLayout) mGameOverView.findViewById(R.id.container_codePegs);
+        for (final CodePeg codePeg : mGame.getSecret()) {
+            final View pegView = mLayoutInflater.inflate(R.layout.peg, container, false);
+            ((ImageView) pegView.findViewById(R.id.peg)).setImageResource(PegUtil.getDrawable(codePeg));
+            container.addView(pegView);
+        }
+    }
+
     private final DialogInterface.OnClickListener mPickPegOnClickListener = new DialogInterface.OnClickListener() {
         public void onClick(final DialogInterface dialog, final int which) {
             SoundUtil.play(MainActivity.this, R.raw.drop0);
             dialog.dismiss();
             final CodePeg codePeg = CodePeg.values()[which];
-            ((ImageView) mSelectedPegView.findViewById(R.id.peg)).setImageResource(PegUtil.getDrawable(codePeg));
             mGame.setGuess(mCurrentRowIndex, mSelectedPegHoleIndex, codePeg);
+            mGameJournal.setGuess(mCurrentRowIndex, mSelectedPegHoleIndex, codePeg.ordinal());
+            showSelectedPeg(codePeg);
+            onGuessChanged();
             updateOkButton();
         }
     };
 
+    /**
+     * Shows the given peg in the selected hole of the current row.
+     */
+    private void showSelectedPeg(final CodePeg codePeg) {
+        if (mCanvasBoardView != null) {
+            mCanvasBoardView.invalidateRow(mCurrentRowIndex);
+        } else {
+            ((ImageView) mSelectedPegView.findViewById(R.id.peg)).setImageResource(PegUtil.getDrawable(codePeg));
+        }
+    }
+
     private void updateOkButton() {
+        if (mCanvasBoardView != null) {
+            mCanvasBoardView.setOkEnabled(mGame.canValidateGuess());
+            return;
+        }
         final ViewGroup row = (ViewGroup) mBoardView.getChildAt(mCurrentRowIndex);
-        row.findViewById(R.id.button_ok).setEnabled(mGame.isRowComplete(mCurrentRowIndex));
+        row.findViewById(R.id.button_ok).setEnabled(mGame.canValidateGuess());
     }
 
+    private final Runnable mPlayRedHintSound = new Runnable() {
+        public void run() {
+            SoundUtil.play(MainActivity.this, R.raw.redhint0);
+        }
+    };
+
+    private final Runnable mPlayWhiteHintSound = new Runnable() {
+        public void run() {
+            SoundUtil.play(MainActivity.this, R.raw.whitehint0);
+        }
+    };
+
     private final OnClickListener mOkOnClickListener = new OnClickListener() {
         public void onClick(final View v) {
             v.setEnabled(false); // avoid double clicking
-            final GuessResult guessResult = mGame.validateGuess();
-            switch (guessResult) {
-                case YOU_WON:
-                    SoundUtil.play(MainActivity.this, R.raw.win0);
-                    showDialog(DIALOG_YOU_WON);
-                    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(MainActivity.this);
-                    int totalGames = sharedPreferences.getInt(Constants.PREF_TOTAL_GAMES, 0);
-                    int totalWon = sharedPreferences.getInt(Constants.PREF_TOTAL_WON, 0);
-                    int totalScore = sharedPreferences.getInt(Constants.PREF_TOTAL_SCORE, 0);
-                    totalGames++;
-                    totalWon++;
-                    totalScore += (mNbRows - mCurrentRowIndex) * 10;
-                    Editor editor = sharedPreferences.edit();
-                    editor.putInt(Constants.PREF_TOTAL_GAMES, totalGames);
-                    editor.putInt(Constants.PREF_TOTAL_WON, totalWon);
-                    editor.putInt(Constants.PREF_TOTAL_SCORE, totalScore);
-                    editor.commit();
-                break;
-
-                case GAME_OVER:
-                    // we have 3 'lost' sound. Pick one randomly
-                    switch (new Random().nextInt(3)) {
-                        case 0:
-                            SoundUtil.play(MainActivity.this, R.raw.lost0);
-                        break;
-                        case 1:
-                            SoundUtil.play(MainActivity.this, R.raw.lost1);
-                        break;
-                        case 2:
-                            SoundUtil.play(MainActivity.this, R.raw.lost2);
-                        break;
+            onOkClicked();
+        }
+    };
+
+    private final BoardView.OnBoardClickListener mOnBoardClickListener = new BoardView.OnBoardClickListener() {
+        public void onHoleClick(final int rowIndex, final int holeIndex) {
+            SoundUtil.play(MainActivity.this, R.raw.pick0);
+            mSelectedPegHoleIndex = holeIndex;
+            mSelectedPegView = null;
+            showDialog(DIALOG_PICK_PEG);
+        }
+
+        public void onOkClick(final int rowIndex) {
+            mCanvasBoardView.setOkEnabled(false); // avoid double clicking
+            onOkClicked();
+        }
+    };
+
+    private void onOkClicked() {
+        onGuessChanged();
+        final long guess = mGame.getBoard().getCode(mCurrentRowIndex);
+        final GuessResult guessResult = mGame.validateGuess();
+        mGameJournal.validateGuess();
+        switch (guessResult) {
+            case YOU_WON:
+                SoundUtil.play(this, R.raw.win0);
+                showDialog(DIALOG_YOU_WON);
+                recordGame(true, mCurrentRowIndex + 1, (mNbRows - mCurrentRowIndex) * 10);
+            break;
+
+            case GAME_OVER:
+                // we have 3 'lost' sound. Pick one randomly
+                switch (new Random().nextInt(3)) {
+                    case 0:
+                        SoundUtil.play(this, R.raw.lost0);
+                    break;
+                    case 1:
+                        SoundUtil.play(this, R.raw.lost1);
+                    break;
+                    case 2:
+                        SoundUtil.play(this, R.raw.lost2);
+                    break;
+                }
+
+                final List<HintPeg> hints = mGame.getHints(mCurrentRowIndex);
+                showHints(mCurrentRowIndex, hints);
+                setRowInactive(mCurrentRowIndex);
+                showDialog(DIALOG_GAME_OVER);
+                recordGame(false, mNbRows, 0);
+            break;
+
+            case TRY_AGAIN:
+                final List<HintPeg> hints2 = mGame.getHints(mCurrentRowIndex);
+                if (hints2.size() == 0) {
+                    SoundUtil.play(this, R.raw.nohint0);
+                } else {
+                    // the sounds of the previous row, if they are still playing, would be confusing
+                    ExecutorUtil.cancelEffects();
+                    long delayMs = 0;
+                    for (final HintPeg hintPeg : hints2) {
+                        ExecutorUtil.scheduleEffect(hintPeg == HintPeg.COLOR_AND_POSITION ? mPlayRedHintSound : mPlayWhiteHintSound,
+                                delayMs);
+                        delayMs += HINT_SOUND_INTERVAL_MS;
                     }
+                }
+                showHints(mCurrentRowIndex, hints2);
+                refreshRemainingSecrets();
+                mHintEngine.onGuessValidated(guess);
+                setRowInactive(mCurrentRowIndex);
+                mCurrentRowIndex++;
+                setRowActive(mCurrentRowIndex);
+            break;
+        }
+    }
 
-                    final List<HintPeg> hints = mGame.getHints(mCurrentRowIndex);
-                    showHints(hints);
-                    setRowInactive(mCurrentRowIndex);
-                    showDialog(DIALOG_GAME_OVER);
-                    sharedPreferences = PreferenceManager.getDefaultSharedPreferences(MainActivity.this);
-                    totalGames = sharedPreferences.getInt(Constants.PREF_TOTAL_GAMES, 0);
-                    totalGames++;
-                    editor = sharedPreferences.edit();
-                    editor.putInt(Constants.PREF_TOTAL_GAMES, totalGames);
-                    editor.commit();
-                break;
-
-                case TRY_AGAIN:
-                    final List<HintPeg> hints2 = mGame.getHints(mCurrentRowIndex);
-                    if (hints2.size() == 0) {
-                        SoundUtil.play(MainActivity.this, R.raw.nohint0);
-                    } else {
-                        new Thread() {
-                            @Override
-                            public void run() {
-                                for (final HintPeg hintPeg : hints2) {
-                                    if (hintPeg == HintPeg.COLOR_AND_POSITION) {
-                                        SoundUtil.play(MainActivity.this, R.raw.redhint0);
-                                    } else {
-                                        SoundUtil.play(MainActivity.this, R.raw.whitehint0);
-                                    }
-                                    try {
-                                        sleep(200);
-                                    } catch (final InterruptedException e) {
-                                        // do nothing
-                                    }
-                                }
-                            }
-                        }.start();
+
+    private void recordGame(final boolean won, final int nbGuesses, final int score) {
+        final long now = System.currentTimeMillis();
+        final int durationMs = (int) Math.min(Integer.MAX_VALUE, Math.max(0, now - mGameStartTime));
+        mStatsStore.addGame(new GameRecord(now, durationMs, won, nbGuesses, score, mNbHoles, mNbRows, mNbColors));
+    }
+
+    /**
+     * Must be called each time the current guess changes: a hint being computed for it is not needed anymore.
+     */
+    private void onGuessChanged() {
+        mHintEngine.cancelHint();
+        mHintToken++;
+    }
+
+    private void requestHint() {
+        final int hintToken = mHintToken;
+        mHintEngine.requestHint(new HintEngine.Callback() {
+            public void onHint(final long guess) {
+                mHandler.post(new Runnable() {
+                    public void run() {
+                        if (hintToken == mHintToken) {
+                            showHint(guess);
+                        }
                     }
-                    showHints(hints2);
-                    setRowInactive(mCurrentRowIndex);
-                    mCurrentRowIndex++;
-                    setRowActive(mCurrentRowIndex);
-                break;
+                });
             }
-        }
-    };
+        });
+    }
 
+    private void showHint(final long guess) {
+        mGame.setGuessCode(mCurrentRowIndex, guess);
+        mGameJournal.setGuessCode(mCurrentRowIndex, guess);
+        if (mCanvasBoardView != null) {
+            mCanvasBoardView.invalidateRow(mCurrentRowIndex);
+            updateOkButton();
+            return;
+        }
+        final LinearLayout containerCodePegs = (LinearLayout) mBoardView.getChildAt(mCurrentRowIndex).findViewById(
+                R.id.container_codePegs);
+        final Board board = mGame.getBoard();
+        for (int hole = 0; hole < mNbHoles; hole++) {
+            ((ImageView) containerCodePegs.getChildAt(hole).findViewById(R.id.peg)).setImageResource(PegUtil.getDrawable(board
+                    .getCodePeg(mCurrentRowIndex, hole)));
+        }
+        updateOkButton();
+    }
 
-    protected void showHints(final List<HintPeg> hints) {
-        final ViewGroup row = (ViewGroup) mBoardView.getChildAt(mCurrentRowIndex);
+    protected void showHints(final int rowIndex, final List<HintPeg> hints) {
+        if (mCanvasBoardView != null) {
+            mCanvasBoardView.invalidateRow(rowIndex);
+            return;
+        }
+        final ViewGroup row = (ViewGroup) mBoardView.getChildAt(rowIndex);
 
         // hide ok button
         UiUtil.setInvisible(row.findViewById(R.id.button_ok));
@@ -638,6 +1104,11 @@ public class MainActivity extends Activity {
         final boolean soundEnabled = sharedPreferences.getBoolean(Constants.PREF_SOUND_ENABLED, true);
         menu.findItem(R.id.menu_soundOnOff).setTitle(soundEnabled ? R.string.menu_soundOff : R.string.menu_soundOn)
                 .setIcon(soundEnabled ? R.drawable.ic_menu_sound_off : R.drawable.ic_menu_sound_on);
+
+        final boolean hardMode = sharedPreferences.getBoolean(Constants.PREF_HARD_MODE, false);
+        menu.findItem(R.id.menu_hardMode).setTitle(hardMode ? R.string.menu_hardModeOff : R.string.menu_hardModeOn);
+
+        menu.findItem(R.id.menu_hint).setEnabled(!mGame.isOver());
         return super.onPrepareOptionsMenu(menu);
     }
 
@@ -668,11 +1139,31 @@ public class MainActivity extends Activity {
                 sharedPreferences.edit().putBoolean(Constants.PREF_SOUND_ENABLED, soundEnabled).commit();
                 setVolumeControlStream(soundEnabled ? AudioManager.STREAM_MUSIC : AudioManager.USE_DEFAULT_STREAM_TYPE);
                 SoundUtil.setEnabled(soundEnabled);
+                if (soundEnabled) {
+                    SoundUtil.warmUp(this);
+                }
+            break;
+
+            case R.id.menu_hardMode:
+                sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
+                boolean hardMode = sharedPreferences.getBoolean(Constants.PREF_HARD_MODE, false);
+                hardMode = !hardMode;
+                sharedPreferences.edit().putBoolean(Constants.PREF_HARD_MODE, hardMode).commit();
+                mGame.setHardMode(hardMode);
+                mHintEngine.setHardMode(hardMode);
+                if (!mGame.isOver()) {
+                    // the current guess may not be allowed anymore, or may be now
+                    updateOkButton();
+                }
             break;
 
             case R.id.menu_help:
                 showDialog(DIALOG_HELP);
             break;
+
+            case R.id.menu_hint:
+                requestHint();
+            break;
         }
 
         return super.onOptionsItemSelected(item);
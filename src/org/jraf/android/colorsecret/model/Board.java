@@ -24,80 +24,422 @@
  */
 package org.jraf.android.colorsecret.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * A game board. Contains the code row, and an array of guess rows.
+ * <p>
+ * All the rows are stored in a single {@code byte[]}, so that a board only takes a few objects whatever its size: for each row, its
+ * colors (two holes per byte, hole 0 first), its filled holes (one bit per hole) and its packed score (see {@link ScoringEngine}). A 4
+ * holes, 12 rows board takes 52 bytes of data.
+ * <p>
+ * The index based accessors ({@code getXxx(rowIndex, ...)}) do not allocate anything, and neither does {@link #getHintPegs(int)}, which
+ * returns shared lists. {@link Row} objects are only views over the board, created by {@link #getGuessRows()}.
  */
-public class Board {
-    private final int mNbRows;
+public class Board implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int MASK_COLOR = (1 << ScoringEngine.BITS_PER_PEG) - 1;
+
+    /**
+     * {@link CodePeg#values()} returns a new array each time.
+     */
+    private static final CodePeg[] CODE_PEGS = CodePeg.values();
 
     /**
-     * A row on the board. Contains ordered code pegs and unordered key pegs.
+     * The hint pegs of every packed score, shared by all the boards.
      */
-    public static class Row {
-        private final int mNbHoles;
-        private final CodePeg[] mCodePegs;
-        private final List<HintPeg> mHintPegs;
+    private static final List<HintPeg>[] HINT_PEGS = createHintPegs();
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static List<HintPeg>[] createHintPegs() {
+        final int nbHoles = ScoringEngine.MAX_NB_HOLES;
+        final List<HintPeg>[] res = new List[ScoringEngine.packScore(nbHoles, nbHoles) + 1];
+        for (int nbColorAndPosition = 0; nbColorAndPosition <= nbHoles; nbColorAndPosition++) {
+            for (int nbColorOnly = 0; nbColorAndPosition + nbColorOnly <= nbHoles; nbColorOnly++) {
+                final ArrayList<HintPeg> hintPegs = new ArrayList<HintPeg>(nbColorAndPosition + nbColorOnly);
+                for (int i = 0; i < nbColorAndPosition; i++) {
+                    hintPegs.add(HintPeg.COLOR_AND_POSITION);
+                }
+                for (int i = 0; i < nbColorOnly; i++) {
+                    hintPegs.add(HintPeg.COLOR_ONLY);
+                }
+                res[ScoringEngine.packScore(nbColorAndPosition, nbColorOnly)] = Collections.unmodifiableList(hintPegs);
+            }
+        }
+        return res;
+    }
 
+    /**
+     * A row on the board. Contains ordered code pegs and unordered key pegs.<br/>
+     * This is a view over its board: it does not hold any data itself.
+     */
+    public static class Row implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Board mBoard;
+        private final int mSlot;
+
+        /**
+         * Creates a row that does not belong to any board.
+         */
         public Row(final int nbHoles) {
-            mNbHoles = nbHoles;
-            mCodePegs = new CodePeg[nbHoles];
-            mHintPegs = new ArrayList<HintPeg>(nbHoles);
+            this(new Board(nbHoles, 0), SECRET_SLOT);
         }
 
+        private Row(final Board board, final int slot) {
+            mBoard = board;
+            mSlot = slot;
+        }
+
+        /**
+         * @return the code pegs of this row, {@code null} for empty holes.
+         * @throws IllegalStateException
+         *             if a color of this row has no matching {@link CodePeg}.
+         */
         public CodePeg[] getCodePegs() {
-            final CodePeg[] res = new CodePeg[mNbHoles];
-            System.arraycopy(mCodePegs, 0, res, 0, mNbHoles);
-            return res;
+            return mBoard.getCodePegsAt(mSlot);
+        }
+
+        /**
+         * @return the code peg at the given position, {@code null} if the hole is empty.
+         * @throws IllegalStateException
+         *             if the color at this position has no matching {@link CodePeg}.
+         */
+        public CodePeg getCodePeg(final int position) {
+            return mBoard.getCodePegAt(mSlot, position);
         }
 
         public void setCodePeg(final int position, final CodePeg codePeg) {
-            mCodePegs[position] = codePeg;
+            mBoard.setColorAt(mSlot, position, codePeg == null ? -1 : codePeg.ordinal());
         }
 
         public void setCodePegs(final CodePeg... codePegs) {
-            if (codePegs.length != mNbHoles) {
-                throw new IllegalArgumentException("You must pass exactly " + mNbHoles + " code pegs");
-            }
-            System.arraycopy(codePegs, 0, mCodePegs, 0, mNbHoles);
+            mBoard.setCodePegsAt(mSlot, codePegs);
         }
 
+        /**
+         * @return the color at the given position, -1 if the hole is empty.
+         */
+        public int getColor(final int position) {
+            return mBoard.getColorAt(mSlot, position);
+        }
+
+        /**
+         * @param color
+         *            the color to put at the given position, -1 to empty the hole.
+         * @throws IllegalArgumentException
+         *             if the color is not between -1 and {@link ScoringEngine#MAX_NB_COLORS} (excluded).
+         */
+        public void setColor(final int position, final int color) {
+            mBoard.setColorAt(mSlot, position, color);
+        }
+
+        /**
+         * @return the packed code of this row (see {@link ScoringEngine}). Empty holes have the color 0.
+         */
+        public long getCode() {
+            return mBoard.getCodeAt(mSlot);
+        }
+
+        /**
+         * Fills all the holes of this row with the given packed code.
+         */
+        public void setCode(final long code) {
+            mBoard.setCodeAt(mSlot, code);
+        }
+
+        public boolean isComplete() {
+            return mBoard.isCompleteAt(mSlot);
+        }
+
+        /**
+         * @return an unmodifiable list of the hint pegs, {@link HintPeg#COLOR_AND_POSITION} first.
+         */
         public List<HintPeg> getHintPegs() {
-            final ArrayList<HintPeg> res = new ArrayList<HintPeg>(mHintPegs);
-            Collections.sort(res, HintPeg.COMPARATOR);
-            return res;
+            return HINT_PEGS[mBoard.getScoreAt(mSlot)];
         }
 
-        public void addHintPeg(final HintPeg hintPeg) {
-            if (mHintPegs.size() == mNbHoles) {
-                throw new IndexOutOfBoundsException("Cannot add more HintPegs");
-            }
-            mHintPegs.add(hintPeg);
+        /**
+         * @return the packed score of this row (see {@link ScoringEngine}).
+         */
+        public int getScore() {
+            return mBoard.getScoreAt(mSlot);
         }
     }
 
-    private final Row mSecretRow;
-    private final Row[] mGuessRows;
+    /**
+     * The secret row is stored first, followed by the guess rows.
+     */
+    private static final int SECRET_SLOT = 0;
+
+    private final int mNbHoles;
+    private final int mNbRows;
+    private final byte[] mData;
 
     public Board(final int nbHoles, final int nbRows) {
-        mNbRows = nbRows;
-        mSecretRow = new Row(nbHoles);
-        mGuessRows = new Row[nbRows];
-        for (int i = 0; i < nbRows; i++) {
-            mGuessRows[i] = new Row(nbHoles);
+        if (nbHoles < 1 || nbHoles > ScoringEngine.MAX_NB_HOLES) {
+            throw new IllegalArgumentException("nbHoles must be between 1 and " + ScoringEngine.MAX_NB_HOLES);
         }
+        mNbHoles = nbHoles;
+        mNbRows = nbRows;
+        mData = new byte[(nbRows + 1) * getSlotSize()];
     }
 
-    Row getSecretRow() {
-        return mSecretRow;
+    public int getNbHoles() {
+        return mNbHoles;
     }
 
+    public int getNbRows() {
+        return mNbRows;
+    }
+
+
+    /*
+     * Guess rows.
+     */
+
+    /**
+     * @return views of the guess rows.
+     */
     public Row[] getGuessRows() {
         final Row[] res = new Row[mNbRows];
-        System.arraycopy(mGuessRows, 0, res, 0, mNbRows);
+        for (int i = 0; i < mNbRows; i++) {
+            res[i] = new Row(this, i + 1);
+        }
         return res;
     }
+
+    /**
+     * @return the color at the given position of the given row, -1 if the hole is empty.
+     */
+    public int getColor(final int rowIndex, final int position) {
+        return getColorAt(getGuessSlot(rowIndex), position);
+    }
+
+    /**
+     * @param color
+     *            the color to put at the given position of the given row, -1 to empty the hole.
+     * @throws IllegalArgumentException
+     *             if the color is not between -1 and {@link ScoringEngine#MAX_NB_COLORS} (excluded).
+     */
+    public void setColor(final int rowIndex, final int position, final int color) {
+        setColorAt(getGuessSlot(rowIndex), position, color);
+    }
+
+    /**
+     * @return the code peg at the given position of the given row, {@code null} if the hole is empty.
+     * @throws IllegalStateException
+     *             if the color at this position has no matching {@link CodePeg}.
+     */
+    public CodePeg getCodePeg(final int rowIndex, final int position) {
+        return getCodePegAt(getGuessSlot(rowIndex), position);
+    }
+
+    /**
+     * @return the packed code of the given row (see {@link ScoringEngine}). Empty holes have the color 0.
+     */
+    public long getCode(final int rowIndex) {
+        return getCodeAt(getGuessSlot(rowIndex));
+    }
+
+    /**
+     * Fills all the holes of the given row with the given packed code.
+     */
+    public void setCode(final int rowIndex, final long code) {
+        setCodeAt(getGuessSlot(rowIndex), code);
+    }
+
+    public boolean isComplete(final int rowIndex) {
+        return isCompleteAt(getGuessSlot(rowIndex));
+    }
+
+    /**
+     * @return {@code true} if no hole of the given row is filled.
+     */
+    public boolean isEmpty(final int rowIndex) {
+        final int offset = getSlotOffset(getGuessSlot(rowIndex)) + getCodeSize();
+        for (int i = 0; i < getFilledHolesSize(); i++) {
+            if (mData[offset + i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the packed score of the given row (see {@link ScoringEngine}).
+     */
+    public int getScore(final int rowIndex) {
+        return getScoreAt(getGuessSlot(rowIndex));
+    }
+
+    void setScore(final int rowIndex, final int score) {
+        if (ScoringEngine.getNbColorAndPosition(score) + ScoringEngine.getNbColorOnly(score) > mNbHoles) {
+            throw new IllegalArgumentException("Cannot have more than " + mNbHoles + " HintPegs");
+        }
+        mData[getSlotOffset(getGuessSlot(rowIndex)) + getCodeSize() + getFilledHolesSize()] = (byte) score;
+    }
+
+    /**
+     * @return an unmodifiable list of the hint pegs of the given row, {@link HintPeg#COLOR_AND_POSITION} first.
+     */
+    public List<HintPeg> getHintPegs(final int rowIndex) {
+        return HINT_PEGS[getScore(rowIndex)];
+    }
+
+    private int getGuessSlot(final int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= mNbRows) {
+            throw new IndexOutOfBoundsException("rowIndex >= mNbRows");
+        }
+        return rowIndex + 1;
+    }
+
+
+    /*
+     * Secret row.
+     */
+
+    long getSecretCode() {
+        return getCodeAt(SECRET_SLOT);
+    }
+
+    void setSecretCode(final long code) {
+        setCodeAt(SECRET_SLOT, code);
+    }
+
+    CodePeg[] getSecretCodePegs() {
+        return getCodePegsAt(SECRET_SLOT);
+    }
+
+
+    /*
+     * Storage.
+     */
+
+    private int getCodeSize() {
+        return (mNbHoles + 1) / 2;
+    }
+
+    private int getFilledHolesSize() {
+        return (mNbHoles + 7) / 8;
+    }
+
+    private int getSlotSize() {
+        // colors, filled holes, score
+        return getCodeSize() + getFilledHolesSize() + 1;
+    }
+
+    private int getSlotOffset(final int slot) {
+        return slot * getSlotSize();
+    }
+
+    private void checkPosition(final int position) {
+        if (position < 0 || position >= mNbHoles) {
+            throw new IndexOutOfBoundsException("position >= mNbHoles");
+        }
+    }
+
+    private boolean isFilledAt(final int offset, final int position) {
+        return (mData[offset + getCodeSize() + position / 8] & 1 << position % 8) != 0;
+    }
+
+    private int getColorAt(final int slot, final int position) {
+        checkPosition(position);
+        final int offset = getSlotOffset(slot);
+        if (!isFilledAt(offset, position)) {
+            return -1;
+        }
+        return mData[offset + position / 2] >> (position % 2 * ScoringEngine.BITS_PER_PEG) & MASK_COLOR;
+    }
+
+    private void setColorAt(final int slot, final int position, final int color) {
+        checkPosition(position);
+        // any other value would spill into the neighboring hole
+        if (color < -1 || color > MASK_COLOR) {
+            throw new IllegalArgumentException("color must be between -1 and " + MASK_COLOR);
+        }
+        final int offset = getSlotOffset(slot);
+        final int colorIndex = offset + position / 2;
+        final int colorShift = position % 2 * ScoringEngine.BITS_PER_PEG;
+        final int filledHolesIndex = offset + getCodeSize() + position / 8;
+        final int filledHoleBit = 1 << position % 8;
+        if (color == -1) {
+            mData[colorIndex] &= ~(MASK_COLOR << colorShift);
+            mData[filledHolesIndex] &= ~filledHoleBit;
+        } else {
+            mData[colorIndex] = (byte) (mData[colorIndex] & ~(MASK_COLOR << colorShift) | color << colorShift);
+            mData[filledHolesIndex] |= filledHoleBit;
+        }
+    }
+
+    private CodePeg getCodePegAt(final int slot, final int position) {
+        final int color = getColorAt(slot, position);
+        if (color == -1) {
+            return null;
+        }
+        if (color >= CODE_PEGS.length) {
+            throw new IllegalStateException("No code peg for color " + color);
+        }
+        return CODE_PEGS[color];
+    }
+
+    private CodePeg[] getCodePegsAt(final int slot) {
+        final CodePeg[] res = new CodePeg[mNbHoles];
+        for (int i = 0; i < mNbHoles; i++) {
+            res[i] = getCodePegAt(slot, i);
+        }
+        return res;
+    }
+
+    private void setCodePegsAt(final int slot, final CodePeg... codePegs) {
+        if (codePegs.length != mNbHoles) {
+            throw new IllegalArgumentException("You must pass exactly " + mNbHoles + " code pegs");
+        }
+        for (int i = 0; i < mNbHoles; i++) {
+            setColorAt(slot, i, codePegs[i] == null ? -1 : codePegs[i].ordinal());
+        }
+    }
+
+    private long getCodeAt(final int slot) {
+        final int offset = getSlotOffset(slot);
+        long res = 0;
+        for (int i = 0; i < getCodeSize(); i++) {
+            res |= (mData[offset + i] & 0xFFL) << (i * 8);
+        }
+        return res;
+    }
+
+    private void setCodeAt(final int slot, final long code) {
+        if (code >>> (mNbHoles * ScoringEngine.BITS_PER_PEG) != 0) {
+            throw new IllegalArgumentException("The code has more than " + mNbHoles + " holes");
+        }
+        final int offset = getSlotOffset(slot);
+        final int codeSize = getCodeSize();
+        for (int i = 0; i < codeSize; i++) {
+            mData[offset + i] = (byte) (code >>> (i * 8));
+        }
+        final int filledHoles = (1 << mNbHoles) - 1;
+        for (int i = 0; i < getFilledHolesSize(); i++) {
+            mData[offset + codeSize + i] = (byte) (filledHoles >>> (i * 8));
+        }
+    }
+
+    private boolean isCompleteAt(final int slot) {
+        final int offset = getSlotOffset(slot) + getCodeSize();
+        final int filledHoles = (1 << mNbHoles) - 1;
+        for (int i = 0; i < getFilledHolesSize(); i++) {
+            if (mData[offset + i] != (byte) (filledHoles >>> (i * 8))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getScoreAt(final int slot) {
+        return mData[getSlotOffset(slot) + getCodeSize() + getFilledHolesSize()] & 0xFF;
+    }
 }
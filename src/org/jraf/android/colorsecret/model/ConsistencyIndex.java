@@ -0,0 +1,122 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+/**
+ * The codes that are consistent with the hints of a game so far, that is the codes that can still be the secret, as a bitset over the
+ * code space (see {@link ScoringEngine#codeAt(long)}).
+ * <p>
+ * The index starts with the whole code space, and is shrunk in place after each guess with {@link #retain(long, int)}, so the work done
+ * for a guess is proportional to the number of codes still consistent, not to the length of the history. Checking a code with
+ * {@link #isConsistent(long)} and counting the consistent codes do not depend on the history at all.
+ * <p>
+ * It takes one bit per code: 162 bytes for 4 holes and 6 colors, 12.5 MB for 8 holes and 10 colors.
+ */
+public class ConsistencyIndex {
+    public static final long MAX_CODE_SPACE_SIZE = 1L << 27;
+
+    private final ScoringEngine mScoringEngine;
+    private final int mCodeSpaceSize;
+    private final long[] mBits;
+    private int mNbConsistent;
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the code space has more than {@link #MAX_CODE_SPACE_SIZE} codes.
+     */
+    public ConsistencyIndex(final ScoringEngine scoringEngine) {
+        final long codeSpaceSize = scoringEngine.getCodeSpaceSize();
+        if (codeSpaceSize > MAX_CODE_SPACE_SIZE) {
+            throw new IllegalArgumentException("The code space is too large for a consistency index (" + codeSpaceSize + " codes)");
+        }
+        mScoringEngine = scoringEngine;
+        mCodeSpaceSize = (int) codeSpaceSize;
+        mBits = new long[(mCodeSpaceSize + 63) >>> 6];
+        reset();
+    }
+
+    /**
+     * Makes every code of the code space consistent again.
+     */
+    public void reset() {
+        for (int i = 0; i < mBits.length; i++) {
+            mBits[i] = -1L;
+        }
+        // no bits past the end of the code space
+        final int nbUsedBits = mCodeSpaceSize & 63;
+        if (nbUsedBits != 0) {
+            mBits[mBits.length - 1] = (1L << nbUsedBits) - 1;
+        }
+        mNbConsistent = mCodeSpaceSize;
+    }
+
+    /**
+     * Removes the codes that would not have given the given score to the given guess.
+     *
+     * @param guess
+     *            the packed code of the guess.
+     * @param score
+     *            the packed score this guess got.
+     */
+    public void retain(final long guess, final int score) {
+        int nbConsistent = 0;
+        // consecutive indices are frequent, especially for the first guess: walk the codes rather than decoding each index
+        int prevIndex = -2;
+        long code = 0;
+        for (int w = 0; w < mBits.length; w++) {
+            long word = mBits[w];
+            while (word != 0) {
+                final int bit = Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                final int index = w << 6 | bit;
+                code = index == prevIndex + 1 ? mScoringEngine.nextCode(code) : mScoringEngine.codeAt(index);
+                prevIndex = index;
+                if (mScoringEngine.score(guess, code) == score) {
+                    nbConsistent++;
+                } else {
+                    mBits[w] &= ~(1L << bit);
+                }
+            }
+        }
+        mNbConsistent = nbConsistent;
+    }
+
+    /**
+     * @param code
+     *            a packed code, valid for this code space.
+     * @return {@code true} if the given code would have got the same hints as the guesses retained so far.
+     */
+    public boolean isConsistent(final long code) {
+        final int index = (int) mScoringEngine.indexOf(code);
+        return (mBits[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * @return the number of codes consistent with the guesses retained so far.
+     */
+    public int getNbConsistent() {
+        return mNbConsistent;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The difficulty of every secret of the code space: the number of guesses a reference solver needs to find it, one byte per code,
+ * indexed by code index (see {@link ScoringEngine#codeAt(long)}).
+ * <p>
+ * The index is computed offline (see the {@code DifficultyIndexer} of the simulator) and saved to a file, which can then be mapped in
+ * memory. To draw secrets of a given difficulty, see {@link SecretGenerator#SecretGenerator(DifficultyIndex, int, int)}.
+ */
+public class DifficultyIndex {
+    private static final int FILE_MAGIC = 0x43534449; // "CSDI"
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * The largest number of guesses that can be recorded.
+     */
+    public static final int MAX_NB_GUESSES = 255;
+
+    private final ScoringEngine mScoringEngine;
+    private final int mSize;
+    private final ByteBuffer mNbGuesses;
+
+    private DifficultyIndex(final ScoringEngine scoringEngine, final int size, final ByteBuffer nbGuesses) {
+        mScoringEngine = scoringEngine;
+        mSize = size;
+        mNbGuesses = nbGuesses;
+    }
+
+
+    /*
+     * Creation.
+     */
+
+    /**
+     * @param nbGuesses
+     *            the number of guesses needed for each code index, between 1 and {@link #MAX_NB_GUESSES} (stored as an unsigned byte). The
+     *            array is used as is, not copied.
+     */
+    public static DifficultyIndex wrap(final ScoringEngine scoringEngine, final byte[] nbGuesses) {
+        final int size = getSize(scoringEngine);
+        if (nbGuesses.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " codes, got " + nbGuesses.length);
+        }
+        return new DifficultyIndex(scoringEngine, size, ByteBuffer.wrap(nbGuesses));
+    }
+
+    /**
+     * Maps an index previously written with {@link #save(File)} in memory.
+     *
+     * @throws IOException
+     *             if the file could not be read, or was not written for the configuration of the given scoring engine.
+     */
+    public static DifficultyIndex map(final File file, final ScoringEngine scoringEngine) throws IOException {
+        final int size = getSize(scoringEngine);
+        return new DifficultyIndex(scoringEngine, size, TableFile.map(file, FILE_MAGIC, FILE_VERSION, scoringEngine, size));
+    }
+
+    private static int getSize(final ScoringEngine scoringEngine) {
+        final long size = scoringEngine.getCodeSpaceSize();
+        if (size > Integer.MAX_VALUE - TableFile.HEADER_SIZE) {
+            throw new IllegalArgumentException("The code space is too large for a difficulty index (" + size + " codes)");
+        }
+        return (int) size;
+    }
+
+    /**
+     * Writes this index to the given file, so it can be mapped later with {@link #map(File, ScoringEngine)}.
+     */
+    public void save(final File file) throws IOException {
+        TableFile.save(file, FILE_MAGIC, FILE_VERSION, mScoringEngine, mNbGuesses);
+    }
+
+
+    /*
+     * Lookup.
+     */
+
+    public ScoringEngine getScoringEngine() {
+        return mScoringEngine;
+    }
+
+    /**
+     * @return the number of codes in the code space.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * @return the number of guesses the reference solver needs to find the given secret.
+     */
+    public int getNbGuesses(final long secret) {
+        return mNbGuesses.get((int) mScoringEngine.indexOf(secret)) & 0xFF;
+    }
+
+    /**
+     * @return the number of secrets found in {@code minNbGuesses} to {@code maxNbGuesses} guesses (included).
+     */
+    public int getNbSecrets(final int minNbGuesses, final int maxNbGuesses) {
+        int res = 0;
+        for (int i = 0; i < mSize; i++) {
+            final int nbGuesses = mNbGuesses.get(i) & 0xFF;
+            if (nbGuesses >= minNbGuesses && nbGuesses <= maxNbGuesses) res++;
+        }
+        return res;
+    }
+
+    /**
+     * @return the packed codes (see {@link ScoringEngine}) of the secrets found in {@code minNbGuesses} to {@code maxNbGuesses} guesses
+     *         (included), in code index order.
+     */
+    public long[] getSecrets(final int minNbGuesses, final int maxNbGuesses) {
+        final long[] res = new long[getNbSecrets(minNbGuesses, maxNbGuesses)];
+        int nbSecrets = 0;
+        long code = 0;
+        for (int i = 0; i < mSize; i++) {
+            final int nbGuesses = mNbGuesses.get(i) & 0xFF;
+            if (nbGuesses >= minNbGuesses && nbGuesses <= maxNbGuesses) res[nbSecrets++] = code;
+            code = mScoringEngine.nextCode(code);
+        }
+        return res;
+    }
+}
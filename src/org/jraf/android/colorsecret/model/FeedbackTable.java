@@ -0,0 +1,207 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jraf.android.colorsecret.Constants;
+
+/**
+ * The score of every code of the code space against every other one, indexed by code index (see {@link ScoringEngine#codeAt(long)}).
+ * <p>
+ * Scores are stored one byte each, so this is only usable for small code spaces: 1296 codes (4 holes, 6 colors) take about 1.6 MB. Larger
+ * games can be played without it, see {@link org.jraf.android.colorsecret.solver.SamplingSolver}.
+ * <p>
+ * A table can be saved to a file, and later mapped in memory instead of being rebuilt.
+ */
+public class FeedbackTable {
+    private static final String TAG = Constants.TAG + FeedbackTable.class.getSimpleName();
+
+    private static final int FILE_MAGIC = 0x43534654; // "CSFT"
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * floor(sqrt(Integer.MAX_VALUE)): 4 holes with 14 colors, 5 holes with 8 colors, 6 holes with 5 colors.
+     */
+    public static final int MAX_CODE_SPACE_SIZE = 46340;
+
+    private final ScoringEngine mScoringEngine;
+    private final int mSize;
+    private final ByteBuffer mTable;
+
+    private FeedbackTable(final ScoringEngine scoringEngine, final int size, final ByteBuffer table) {
+        mScoringEngine = scoringEngine;
+        mSize = size;
+        mTable = table;
+    }
+
+
+    /*
+     * Creation.
+     */
+
+    /**
+     * Builds the table for the configuration of the given scoring engine, using as many threads as there are available processors.
+     */
+    public static FeedbackTable build(final ScoringEngine scoringEngine) {
+        return build(scoringEngine, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Builds the table for the configuration of the given scoring engine, splitting the work across the given number of threads.
+     */
+    public static FeedbackTable build(final ScoringEngine scoringEngine, final int nbThreads) {
+        final int size = getSize(scoringEngine);
+        final long[] codes = new long[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = scoringEngine.codeAt(i);
+        }
+        final byte[] table = new byte[size * size];
+
+        if (nbThreads <= 1) {
+            fillRows(scoringEngine, codes, table, 0, size);
+        } else {
+            final ExecutorService executorService = Executors.newFixedThreadPool(nbThreads);
+            try {
+                // a few more chunks than threads so that the threads finishing early can help the others
+                final int nbChunks = Math.min(size, nbThreads * 4);
+                final List<Future<?>> futures = new ArrayList<Future<?>>(nbChunks);
+                for (int chunk = 0; chunk < nbChunks; chunk++) {
+                    final int fromRow = (int) ((long) size * chunk / nbChunks);
+                    final int toRow = (int) ((long) size * (chunk + 1) / nbChunks);
+                    futures.add(executorService.submit(new Runnable() {
+                        public void run() {
+                            fillRows(scoringEngine, codes, table, fromRow, toRow);
+                        }
+                    }));
+                }
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while building the feedback table");
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException("Could not build the feedback table", e.getCause());
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+        return new FeedbackTable(scoringEngine, size, ByteBuffer.wrap(table));
+    }
+
+    private static void fillRows(final ScoringEngine scoringEngine, final long[] codes, final byte[] table, final int fromRow,
+            final int toRow) {
+        final int size = codes.length;
+        for (int guess = fromRow; guess < toRow; guess++) {
+            final long guessCode = codes[guess];
+            final int offset = guess * size;
+            for (int secret = 0; secret < size; secret++) {
+                table[offset + secret] = (byte) scoringEngine.score(guessCode, codes[secret]);
+            }
+        }
+    }
+
+    /**
+     * Maps a table previously written with {@link #save(File)} in memory.
+     *
+     * @throws IOException
+     *             if the file could not be read, or was not written for the configuration of the given scoring engine.
+     */
+    public static FeedbackTable map(final File file, final ScoringEngine scoringEngine) throws IOException {
+        final int size = getSize(scoringEngine);
+        return new FeedbackTable(scoringEngine, size, TableFile.map(file, FILE_MAGIC, FILE_VERSION, scoringEngine, (long) size * size));
+    }
+
+    /**
+     * Maps the table saved in the given file if it is usable, otherwise builds it and tries to save it to this file for next time.
+     */
+    public static FeedbackTable mapOrBuild(final File file, final ScoringEngine scoringEngine) {
+        if (file.exists()) {
+            try {
+                return map(file, scoringEngine);
+            } catch (final IOException e) {
+                // stale or corrupted: rebuild it below
+                ModelLog.w(TAG, "Could not map " + file + ", rebuilding it", e);
+            }
+        }
+        final FeedbackTable res = build(scoringEngine);
+        try {
+            res.save(file);
+        } catch (final IOException e) {
+            // the table is still usable, it will just be rebuilt next time
+            ModelLog.w(TAG, "Could not save " + file, e);
+            file.delete();
+        }
+        return res;
+    }
+
+    private static int getSize(final ScoringEngine scoringEngine) {
+        final long size = scoringEngine.getCodeSpaceSize();
+        if (size > MAX_CODE_SPACE_SIZE) {
+            throw new IllegalArgumentException("The code space is too large for a feedback table (" + size + " codes)");
+        }
+        return (int) size;
+    }
+
+    /**
+     * Writes this table to the given file, so it can be mapped later with {@link #map(File, ScoringEngine)}.
+     */
+    public void save(final File file) throws IOException {
+        TableFile.save(file, FILE_MAGIC, FILE_VERSION, mScoringEngine, mTable);
+    }
+
+
+    /*
+     * Lookup.
+     */
+
+    public ScoringEngine getScoringEngine() {
+        return mScoringEngine;
+    }
+
+    /**
+     * @return the number of codes in the code space.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * @return the packed score (see {@link ScoringEngine}) of the guess at the given code index against the secret at the given code
+     *         index.
+     */
+    public int score(final int guessIndex, final int secretIndex) {
+        return mTable.get(guessIndex * mSize + secretIndex) & 0xFF;
+    }
+}
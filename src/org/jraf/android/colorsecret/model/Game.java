@@ -24,41 +24,71 @@
  */
 package org.jraf.android.colorsecret.model;
 
-import java.util.ArrayList;
+import java.io.Serializable;
 import java.util.List;
-import java.util.Random;
 
 import org.jraf.android.colorsecret.Constants;
-import org.jraf.android.colorsecret.model.Board.Row;
-
-import android.util.Log;
 
 /**
  * Represents an ongoing game.
  */
-public class Game {
+public class Game implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private static final String TAG = Constants.TAG + Game.class.getSimpleName();
 
+    private static final Instrumentation.Probe VALIDATE_GUESS_PROBE = Instrumentation.newProbe("Game.validateGuess");
+
     public static enum GuessResult {
         TRY_AGAIN, GAME_OVER, YOU_WON,
     }
 
     private final int mNbHoles;
     private final int mNbRows;
+    private final int mNbColors;
 
     private final Board mBoard;
+    private final ScoringEngine mScoringEngine;
 
+    private long mSecret;
     private int mCurrentGuess = 0;
 
+    private boolean mHardMode;
+    /**
+     * Built when first needed.
+     */
+    private transient ConsistencyIndex mConsistencyIndex;
+    /**
+     * Built when first needed.
+     */
+    private transient SecretGenerator mSecretGenerator;
+
     /**
+     * Creates a game using the colors of {@link CodePeg}.
+     *
      * @param nbHoles
      *            number of holes for each row.
      * @param nbRows
      *            total number of rows.
      */
     public Game(final int nbHoles, final int nbRows) {
+        this(nbHoles, nbRows, CodePeg.values().length);
+    }
+
+    /**
+     * @param nbHoles
+     *            number of holes for each row (at most {@link ScoringEngine#MAX_NB_HOLES}).
+     * @param nbRows
+     *            total number of rows.
+     * @param nbColors
+     *            number of colors (at most {@link ScoringEngine#MAX_NB_COLORS}). Only the games with at most as many colors as there
+     *            are {@link CodePeg}s can be played with the {@link CodePeg} methods, the others must use the color (int) ones.
+     */
+    public Game(final int nbHoles, final int nbRows, final int nbColors) {
+        mScoringEngine = new ScoringEngine(nbHoles, nbColors);
         mNbHoles = nbHoles;
         mNbRows = nbRows;
+        mNbColors = nbColors;
         mBoard = new Board(nbHoles, nbRows);
     }
 
@@ -66,59 +96,142 @@ public class Game {
         return mBoard;
     }
 
+    public ScoringEngine getScoringEngine() {
+        return mScoringEngine;
+    }
+
+    public int getNbHoles() {
+        return mNbHoles;
+    }
+
+    public int getNbRows() {
+        return mNbRows;
+    }
+
+    public int getNbColors() {
+        return mNbColors;
+    }
+
     public void setSecret(final CodePeg... codePegs) {
-        mBoard.getSecretRow().setCodePegs(codePegs);
+        setSecretCode(mScoringEngine.encode(codePegs));
+    }
+
+    /**
+     * @param secret
+     *            the packed code of the secret (see {@link ScoringEngine}).
+     */
+    public void setSecretCode(final long secret) {
+        if (!mScoringEngine.isValid(secret)) {
+            throw new IllegalArgumentException("Invalid code for " + mNbHoles + " holes and " + mNbColors + " colors");
+        }
+        mBoard.setSecretCode(secret);
+        mSecret = secret;
     }
 
+    /**
+     * Sets a random secret, from the generator of the current thread (see {@link SecretGenerator}).
+     */
     public void setRandomSecret() {
-        final List<CodePeg> secret = new ArrayList<CodePeg>(mNbHoles);
-        final Random random = new Random();
-        final CodePeg[] values = CodePeg.values();
-        for (int i = 0; i < mNbHoles; i++) {
-            secret.add(values[random.nextInt(values.length)]);
+        if (mSecretGenerator == null) {
+            mSecretGenerator = new SecretGenerator(mScoringEngine);
+        }
+        setRandomSecret(mSecretGenerator);
+    }
+
+    /**
+     * Sets a secret drawn by the given generator, for instance one of a given difficulty (see
+     * {@link SecretGenerator#SecretGenerator(DifficultyIndex, int, int)}).
+     *
+     * @throws IllegalArgumentException
+     *             if the generator draws secrets for another number of holes or colors.
+     */
+    public void setRandomSecret(final SecretGenerator secretGenerator) {
+        if (secretGenerator.getNbHoles() != mNbHoles || secretGenerator.getNbColors() != mNbColors) {
+            throw new IllegalArgumentException("The generator draws secrets for " + secretGenerator.getNbHoles() + " holes and "
+                    + secretGenerator.getNbColors() + " colors, not " + mNbHoles + " and " + mNbColors);
         }
-        if (Constants.LOGD) Log.d(TAG, "Secret: " + secret);
-        mBoard.getSecretRow().setCodePegs(secret.toArray(new CodePeg[mNbHoles]));
+        final long secret = secretGenerator.next();
+        setSecretCode(secret);
+        if (ModelLog.isEnabled()) ModelLog.d(TAG, "Secret: " + mScoringEngine.toString(secret));
     }
 
     public CodePeg[] getSecret() {
-        return mBoard.getSecretRow().getCodePegs();
+        return mBoard.getSecretCodePegs();
+    }
+
+    /**
+     * @return the packed code of the secret (see {@link ScoringEngine}).
+     */
+    public long getSecretCode() {
+        return mSecret;
     }
 
     public void setGuess(final int rowIndex, final int holeIndex, final CodePeg codePeg) {
+        setGuess(rowIndex, holeIndex, codePeg == null ? -1 : codePeg.ordinal());
+    }
+
+    /**
+     * @param color
+     *            the color to put in the given hole, -1 to empty it.
+     */
+    public void setGuess(final int rowIndex, final int holeIndex, final int color) {
         if (rowIndex >= mNbRows) {
             throw new IndexOutOfBoundsException("rowIndex >= mNbRows");
         }
         if (holeIndex >= mNbHoles) {
             throw new IndexOutOfBoundsException("holeIndex >= mNbHoles");
         }
-        mBoard.getGuessRows()[rowIndex].setCodePeg(holeIndex, codePeg);
+        if (color < -1 || color >= mNbColors) {
+            throw new IllegalArgumentException("color must be between -1 and mNbColors (excluded)");
+        }
+        mBoard.setColor(rowIndex, holeIndex, color);
     }
 
-    public boolean isRowComplete(final int rowIndex) {
-        final Row row = mBoard.getGuessRows()[rowIndex];
-        for (int i = 0; i < mNbHoles; i++) {
-            if (row.getCodePegs()[i] == null) {
-                return false;
-            }
+    /**
+     * Fills a whole row.
+     *
+     * @param code
+     *            the packed code to put in the given row (see {@link ScoringEngine}).
+     */
+    public void setGuessCode(final int rowIndex, final long code) {
+        if (rowIndex >= mNbRows) {
+            throw new IndexOutOfBoundsException("rowIndex >= mNbRows");
+        }
+        if (!mScoringEngine.isValid(code)) {
+            throw new IllegalArgumentException("Invalid code for " + mNbHoles + " holes and " + mNbColors + " colors");
         }
-        return true;
+        mBoard.setCode(rowIndex, code);
     }
 
+    public boolean isRowComplete(final int rowIndex) {
+        return mBoard.isComplete(rowIndex);
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             in hard mode, if the current guess is not consistent with the hints so far (see {@link #canValidateGuess()}).
+     */
     public GuessResult validateGuess() {
+        final long start = Instrumentation.start();
+        try {
+            return doValidateGuess();
+        } finally {
+            VALIDATE_GUESS_PROBE.stop(start);
+        }
+    }
+
+    private GuessResult doValidateGuess() {
         if (mCurrentGuess == mNbRows) {
             throw new IndexOutOfBoundsException("Already reached the maximum number of guesses");
         }
-        computeHints();
-        final List<HintPeg> hintPegs = mBoard.getGuessRows()[mCurrentGuess].getHintPegs();
-        int i = 0;
-        for (final HintPeg hintPeg : hintPegs) {
-            if (hintPeg != HintPeg.COLOR_AND_POSITION) {
-                break;
-            }
-            i++;
+        if (mHardMode && mBoard.isComplete(mCurrentGuess) && !isConsistent(mBoard.getCode(mCurrentGuess))) {
+            throw new IllegalStateException("In hard mode, the guess must be consistent with the hints so far");
         }
-        if (i == mNbHoles) {
+        final int score = computeHints();
+        if (mConsistencyIndex != null) {
+            mConsistencyIndex.retain(mBoard.getCode(mCurrentGuess), score);
+        }
+        if (mScoringEngine.isWinning(score)) {
             // we have nbHoles color+position pegs, that means all of them are correct: we won
             return GuessResult.YOU_WON;
         }
@@ -130,57 +243,130 @@ public class Game {
     }
 
     /**
-     * Compute the hint pegs for the current guess and add them to the board.
+     * Compute the hints for the current guess and add them to the board.
+     *
+     * @return the packed score of the current guess (see {@link ScoringEngine}).
      */
-    private void computeHints() {
-        final Row guessRow = mBoard.getGuessRows()[mCurrentGuess];
-        final CodePeg[] guessPegs = guessRow.getCodePegs();
-        final Row secretRow = mBoard.getSecretRow();
-        final CodePeg[] secretPegs = secretRow.getCodePegs();
+    private int computeHints() {
+        if (!mBoard.isComplete(mCurrentGuess)) {
+            throw new IllegalStateException("The current row is not complete");
+        }
+        final int score = mScoringEngine.score(mBoard.getCode(mCurrentGuess), mSecret);
+        mBoard.setScore(mCurrentGuess, score);
+        return score;
+    }
 
-        // look for correct color+positions first
-        for (int idx = 0; idx < mNbHoles; idx++) {
-            final CodePeg guessPeg = guessPegs[idx];
-            final CodePeg secretPeg = secretPegs[idx];
-            if (secretPeg == guessPeg) {
-                guessRow.addHintPeg(HintPeg.COLOR_AND_POSITION);
-                // now that we found it, remove this guess peg from further comparisons
-                secretPegs[idx] = null;
-                guessPegs[idx] = null;
-            }
+    public List<HintPeg> getHints(final int rowIndex) {
+        return mBoard.getHintPegs(rowIndex);
+    }
+
+    /**
+     * @return the packed score of the given row (see {@link ScoringEngine}), 0 if it has not been validated yet.
+     */
+    public int getScore(final int rowIndex) {
+        return mBoard.getScore(rowIndex);
+    }
+
+    public int getCurrentGuess() {
+        return mCurrentGuess;
+    }
+
+    /**
+     * @return {@code true} if the game has been won or lost.
+     */
+    public boolean isOver() {
+        return mCurrentGuess == mNbRows || isWon();
+    }
+
+    /**
+     * @return {@code true} if the current guess is the secret: a won game stays on its winning row.
+     */
+    private boolean isWon() {
+        return mCurrentGuess < mNbRows && mScoringEngine.isWinning(mBoard.getScore(mCurrentGuess));
+    }
+
+    /**
+     * Used when restoring a game (see {@link GameCodec}).
+     */
+    void setCurrentGuess(final int currentGuess) {
+        if (currentGuess < 0 || currentGuess > mNbRows) {
+            throw new IndexOutOfBoundsException("currentGuess > mNbRows");
         }
+        mCurrentGuess = currentGuess;
+        mConsistencyIndex = null;
+    }
 
-        // now look for correct color only
-        // iterate over guess pegs
-        for (int guessIdx = 0; guessIdx < mNbHoles; guessIdx++) {
-            final CodePeg guessPeg = guessPegs[guessIdx];
-            if (guessPeg == null) {
-                //already found
-                continue;
-            }
 
-            // look for this guess peg in the secret pegs
-            for (int secretIdx = 0; secretIdx < mNbHoles; secretIdx++) {
-                final CodePeg secretPeg = secretPegs[secretIdx];
-
-                if (secretPeg == guessPeg) {
-                    // we found one!
-                    guessRow.addHintPeg(HintPeg.COLOR_ONLY);
-                    // now that we found it, remove this secret peg from further comparisons
-                    guessPegs[guessIdx] = null;
-                    secretPegs[secretIdx] = null;
-                    break;
-                }
-            }
+    /*
+     * Hard mode.
+     */
+
+    /**
+     * In hard mode, each guess must be consistent with the hints of the previous ones: it must be a code that can still be the secret.
+     * <p>
+     * Can be changed during a game.
+     *
+     * @throws IllegalArgumentException
+     *             if the code space of this game is too large (see {@link ConsistencyIndex#MAX_CODE_SPACE_SIZE}).
+     */
+    public void setHardMode(final boolean hardMode) {
+        if (hardMode) {
+            // fail now rather than at the first guess
+            getConsistencyIndex();
         }
+        mHardMode = hardMode;
+    }
 
+    public boolean isHardMode() {
+        return mHardMode;
     }
 
-    public List<HintPeg> getHints(final int rowIndex) {
-        return mBoard.getGuessRows()[rowIndex].getHintPegs();
+    /**
+     * @return {@code true} if the game is not over and the current row is complete and, in hard mode, consistent with the hints so far.
+     */
+    public boolean canValidateGuess() {
+        if (isOver() || !mBoard.isComplete(mCurrentGuess)) {
+            return false;
+        }
+        return !mHardMode || isConsistent(mBoard.getCode(mCurrentGuess));
     }
 
-    public int getCurrentGuess() {
-        return mCurrentGuess;
+    /**
+     * @param code
+     *            a packed code (see {@link ScoringEngine}).
+     * @return {@code true} if the given code would have got the same hints as all the guesses validated so far, that is if it can
+     *         still be the secret.
+     * @throws IllegalArgumentException
+     *             if the code space of this game is too large (see {@link ConsistencyIndex#MAX_CODE_SPACE_SIZE}).
+     */
+    public boolean isConsistent(final long code) {
+        if (!mScoringEngine.isValid(code)) {
+            throw new IllegalArgumentException("Invalid code for " + mNbHoles + " holes and " + mNbColors + " colors");
+        }
+        return getConsistencyIndex().isConsistent(code);
+    }
+
+    /**
+     * @return the number of codes that can still be the secret, given the hints so far.
+     * @throws IllegalArgumentException
+     *             if the code space of this game is too large (see {@link ConsistencyIndex#MAX_CODE_SPACE_SIZE}).
+     */
+    public int getNbRemainingSecrets() {
+        return getConsistencyIndex().getNbConsistent();
+    }
+
+    private ConsistencyIndex getConsistencyIndex() {
+        if (mConsistencyIndex == null) {
+            final ConsistencyIndex consistencyIndex = new ConsistencyIndex(mScoringEngine);
+            for (int i = 0; i < getNbValidatedRows(); i++) {
+                consistencyIndex.retain(mBoard.getCode(i), mBoard.getScore(i));
+            }
+            mConsistencyIndex = consistencyIndex;
+        }
+        return mConsistencyIndex;
+    }
+
+    private int getNbValidatedRows() {
+        return isWon() ? mCurrentGuess + 1 : mCurrentGuess;
     }
 }
@@ -0,0 +1,214 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a {@link Game} to a compact binary form, and reads it back.
+ * <p>
+ * The format is made of unsigned bytes:
+ * <ul>
+ * <li>header: version, number of holes, number of rows, number of colors, current guess index, number of saved rows;</li>
+ * <li>the secret: its packed code (see {@link ScoringEngine}), two holes per byte, hole 0 first;</li>
+ * <li>for each saved row: the filled holes (one bit per hole, hole 0 in the lowest bit of the first byte), its packed code like the
+ * secret, and its packed score.</li>
+ * </ul>
+ * Only the rows up to the last non empty one are saved. A 4 holes game takes 8 bytes plus 4 bytes per saved row.
+ */
+public class GameCodec {
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 6;
+    private static final int MAX_UNSIGNED_BYTE = 0xFF;
+
+    private GameCodec() {}
+
+    /**
+     * @return the maximum number of bytes needed to encode a game with the given number of holes and rows.
+     */
+    public static int getMaxEncodedSize(final int nbHoles, final int nbRows) {
+        return HEADER_SIZE + getCodeSize(nbHoles) + nbRows * getRowSize(nbHoles);
+    }
+
+    private static int getCodeSize(final int nbHoles) {
+        return (nbHoles * ScoringEngine.BITS_PER_PEG + 7) / 8;
+    }
+
+    private static int getFilledHolesSize(final int nbHoles) {
+        return (nbHoles + 7) / 8;
+    }
+
+    private static int getRowSize(final int nbHoles) {
+        return getFilledHolesSize(nbHoles) + getCodeSize(nbHoles) + 1;
+    }
+
+
+    /*
+     * Encoding.
+     */
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the game has more than 255 rows.
+     */
+    public static byte[] encode(final Game game) {
+        final int nbHoles = game.getNbHoles();
+        final int nbSavedRows = getNbSavedRows(game);
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + getCodeSize(nbHoles) + nbSavedRows * getRowSize(nbHoles));
+        encode(game, buffer, nbSavedRows);
+        return buffer.array();
+    }
+
+    /**
+     * Writes the given game at the current position of the given buffer, which must have at least
+     * {@link #getMaxEncodedSize(int, int)} bytes remaining.
+     *
+     * @throws IllegalArgumentException
+     *             if the game has more than 255 rows.
+     */
+    public static void encode(final Game game, final ByteBuffer buffer) {
+        encode(game, buffer, getNbSavedRows(game));
+    }
+
+    private static void encode(final Game game, final ByteBuffer buffer, final int nbSavedRows) {
+        final int nbHoles = game.getNbHoles();
+        final int nbRows = game.getNbRows();
+        if (nbRows > MAX_UNSIGNED_BYTE) {
+            throw new IllegalArgumentException("Cannot encode a game of more than " + MAX_UNSIGNED_BYTE + " rows");
+        }
+        buffer.put((byte) VERSION);
+        buffer.put((byte) nbHoles);
+        buffer.put((byte) nbRows);
+        buffer.put((byte) game.getNbColors());
+        buffer.put((byte) game.getCurrentGuess());
+        buffer.put((byte) nbSavedRows);
+        putCode(buffer, game.getSecretCode(), nbHoles);
+        final Board board = game.getBoard();
+        final int filledHolesSize = getFilledHolesSize(nbHoles);
+        for (int i = 0; i < nbSavedRows; i++) {
+            int filledHoles = 0;
+            for (int hole = 0; hole < nbHoles; hole++) {
+                if (board.getColor(i, hole) != -1) {
+                    filledHoles |= 1 << hole;
+                }
+            }
+            for (int b = 0; b < filledHolesSize; b++) {
+                buffer.put((byte) (filledHoles >>> (b * 8)));
+            }
+            putCode(buffer, board.getCode(i), nbHoles);
+            buffer.put((byte) board.getScore(i));
+        }
+    }
+
+    private static int getNbSavedRows(final Game game) {
+        final Board board = game.getBoard();
+        for (int i = game.getNbRows() - 1; i >= 0; i--) {
+            if (board.getScore(i) != 0 || !board.isEmpty(i)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static void putCode(final ByteBuffer buffer, final long code, final int nbHoles) {
+        final int codeSize = getCodeSize(nbHoles);
+        for (int b = 0; b < codeSize; b++) {
+            buffer.put((byte) (code >>> (b * 8)));
+        }
+    }
+
+
+    /*
+     * Decoding.
+     */
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the data is not a game encoded by this version, or is truncated.
+     */
+    public static Game decode(final byte[] data) {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Reads a game from the current position of the given buffer.
+     *
+     * @throws IllegalArgumentException
+     *             if the data is not a game encoded by this version, or is truncated.
+     */
+    public static Game decode(final ByteBuffer buffer) {
+        try {
+            final int version = getUnsignedByte(buffer);
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported version: " + version);
+            }
+            final int nbHoles = getUnsignedByte(buffer);
+            final int nbRows = getUnsignedByte(buffer);
+            final int nbColors = getUnsignedByte(buffer);
+            final int currentGuess = getUnsignedByte(buffer);
+            final int nbSavedRows = getUnsignedByte(buffer);
+            if (currentGuess > nbRows || nbSavedRows > nbRows) {
+                throw new IllegalArgumentException("Corrupted game data");
+            }
+            // validates the number of holes and colors
+            final Game res = new Game(nbHoles, nbRows, nbColors);
+            res.setSecretCode(getCode(buffer, nbHoles));
+            final Board board = res.getBoard();
+            final int filledHolesSize = getFilledHolesSize(nbHoles);
+            for (int i = 0; i < nbSavedRows; i++) {
+                int filledHoles = 0;
+                for (int b = 0; b < filledHolesSize; b++) {
+                    filledHoles |= getUnsignedByte(buffer) << (b * 8);
+                }
+                final long code = getCode(buffer, nbHoles);
+                for (int hole = 0; hole < nbHoles; hole++) {
+                    if ((filledHoles & 1 << hole) != 0) {
+                        res.setGuess(i, hole, ScoringEngine.getPeg(code, hole));
+                    }
+                }
+                board.setScore(i, getUnsignedByte(buffer));
+            }
+            res.setCurrentGuess(currentGuess);
+            return res;
+        } catch (final BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated game data");
+        }
+    }
+
+    private static long getCode(final ByteBuffer buffer, final int nbHoles) {
+        final int codeSize = getCodeSize(nbHoles);
+        long res = 0;
+        for (int b = 0; b < codeSize; b++) {
+            res |= (long) getUnsignedByte(buffer) << (b * 8);
+        }
+        return res;
+    }
+
+    private static int getUnsignedByte(final ByteBuffer buffer) {
+        return buffer.get() & MAX_UNSIGNED_BYTE;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.jraf.android.colorsecret.Constants;
+
+/**
+ * Records the game in progress to a file, so that it survives the death of the process.
+ * <p>
+ * The journal starts with a snapshot of the game (see {@link GameCodec}), followed by one small record per move. Records are first
+ * buffered in memory, which is all the caller pays for: the buffer is written and synced to the file by the given executor, at most once
+ * per commit delay, so that a burst of moves costs a single sync (group commit). A crash loses at most the moves of the last commit delay.
+ * <p>
+ * Each record is checksummed: {@link #replay(Runnable)} stops at the first incomplete or corrupted record, typically the one being
+ * written when the process died.
+ */
+public class GameJournal {
+    private static final String TAG = Constants.TAG + GameJournal.class.getSimpleName();
+
+    private static final byte TYPE_SNAPSHOT = 1;
+    private static final byte TYPE_SET_GUESS = 2;
+    private static final byte TYPE_SET_GUESS_CODE = 3;
+    private static final byte TYPE_VALIDATE_GUESS = 4;
+
+    /**
+     * Type (1 byte), payload length (2 bytes), then the payload and the CRC32 of the type, length and payload (4 bytes).
+     */
+    private static final int RECORD_HEADER_SIZE = 3;
+    private static final int RECORD_CRC_SIZE = 4;
+    private static final int MAX_MOVE_PAYLOAD_SIZE = 9;
+
+    private final File mFile;
+    private final ScheduledExecutorService mExecutor;
+    private final long mCommitDelayMs;
+
+    /*
+     * Guarded by this.
+     */
+    private byte[] mPending = new byte[256];
+    private int mPendingSize;
+    private boolean mTruncate;
+    private boolean mCommitScheduled;
+    private final ByteBuffer mMoveRecord = ByteBuffer.allocate(RECORD_HEADER_SIZE + MAX_MOVE_PAYLOAD_SIZE + RECORD_CRC_SIZE);
+    private final CRC32 mCrc = new CRC32();
+
+    /**
+     * Guards the file, in case the executor has several threads.
+     */
+    private final Object mFileLock = new Object();
+
+    /*
+     * Guarded by this.
+     */
+    private boolean mReplayed;
+    private Game mReplayedGame;
+    private Game mCurrentGame;
+
+    private final Runnable mCommitRunnable = new Runnable() {
+        public void run() {
+            commit();
+        }
+    };
+
+    /**
+     * @param executor
+     *            the executor to write the file from.
+     * @param commitDelayMs
+     *            how long to wait after a move before writing it, to write the following ones at the same time.
+     */
+    public GameJournal(final File file, final ScheduledExecutorService executor, final long commitDelayMs) {
+        mFile = file;
+        mExecutor = executor;
+        mCommitDelayMs = commitDelayMs;
+    }
+
+
+    /*
+     * Recording.
+     */
+
+    /**
+     * Starts a new journal for the given game, which can be a new one or a game in progress. The previous journal is discarded.
+     */
+    public void startGame(final Game game) {
+        final byte[] snapshot = GameCodec.encode(game);
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + snapshot.length + RECORD_CRC_SIZE);
+        record.put(TYPE_SNAPSHOT).putShort((short) snapshot.length).put(snapshot);
+        synchronized (this) {
+            mCurrentGame = game;
+            mPendingSize = 0;
+            mTruncate = true;
+            append(record);
+        }
+    }
+
+    public synchronized void setGuess(final int rowIndex, final int holeIndex, final int color) {
+        mMoveRecord.clear();
+        // the color is signed: -1 empties the hole
+        mMoveRecord.put(TYPE_SET_GUESS).putShort((short) 3).put((byte) rowIndex).put((byte) holeIndex).put((byte) color);
+        append(mMoveRecord);
+    }
+
+    public synchronized void setGuessCode(final int rowIndex, final long code) {
+        mMoveRecord.clear();
+        mMoveRecord.put(TYPE_SET_GUESS_CODE).putShort((short) 9).put((byte) rowIndex).putLong(code);
+        append(mMoveRecord);
+    }
+
+    /**
+     * Must be called after a successful {@link Game#validateGuess()}.
+     */
+    public synchronized void validateGuess() {
+        mMoveRecord.clear();
+        mMoveRecord.put(TYPE_VALIDATE_GUESS).putShort((short) 0);
+        append(mMoveRecord);
+    }
+
+    /**
+     * Writes the moves recorded so far without waiting for the commit delay, for instance when the app goes to the background.
+     */
+    public void commitNow() {
+        mExecutor.execute(mCommitRunnable);
+    }
+
+    /**
+     * Appends the given record, written up to its position, and its CRC to the pending bytes. Must be called with the lock held.
+     */
+    private void append(final ByteBuffer record) {
+        final int length = record.position();
+        mCrc.reset();
+        mCrc.update(record.array(), 0, length);
+        record.putInt((int) mCrc.getValue());
+        final int recordSize = length + RECORD_CRC_SIZE;
+        if (mPendingSize + recordSize > mPending.length) {
+            final byte[] pending = new byte[Math.max(mPending.length * 2, mPendingSize + recordSize)];
+            System.arraycopy(mPending, 0, pending, 0, mPendingSize);
+            mPending = pending;
+        }
+        System.arraycopy(record.array(), 0, mPending, mPendingSize, recordSize);
+        mPendingSize += recordSize;
+        if (!mCommitScheduled) {
+            mCommitScheduled = true;
+            mExecutor.schedule(mCommitRunnable, mCommitDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void commit() {
+        synchronized (mFileLock) {
+            final byte[] data;
+            final boolean truncate;
+            synchronized (this) {
+                mCommitScheduled = false;
+                if (mPendingSize == 0) return;
+                data = new byte[mPendingSize];
+                System.arraycopy(mPending, 0, data, 0, mPendingSize);
+                mPendingSize = 0;
+                truncate = mTruncate;
+                mTruncate = false;
+            }
+            try {
+                final FileOutputStream outputStream = new FileOutputStream(mFile, !truncate);
+                try {
+                    outputStream.write(data);
+                    outputStream.getFD().sync();
+                } finally {
+                    outputStream.close();
+                }
+            } catch (final IOException e) {
+                // the journal is incomplete, it will start over with the next game
+                ModelLog.w(TAG, "Could not write " + mFile, e);
+            }
+        }
+    }
+
+
+    /*
+     * Replay.
+     */
+
+    /**
+     * Reads the game recorded in the journal by a previous process, on the executor. Must be called before {@link #startGame(Game)}: the
+     * executor runs its tasks in order, so the journal is read before it is overwritten.
+     *
+     * @param onReplayed
+     *            run from the executor once the journal is read, can be {@code null}.
+     */
+    public void replay(final Runnable onReplayed) {
+        mExecutor.execute(new Runnable() {
+            public void run() {
+                final Game game = readJournal();
+                synchronized (GameJournal.this) {
+                    mReplayedGame = game;
+                    mReplayed = true;
+                }
+                if (onReplayed != null) onReplayed.run();
+            }
+        });
+    }
+
+    public synchronized boolean isReplayed() {
+        return mReplayed;
+    }
+
+    /**
+     * @return the game read by {@link #replay(Runnable)}, or {@code null} if the journal was empty or unreadable, or is not read yet.
+     */
+    public synchronized Game getReplayedGame() {
+        return mReplayedGame;
+    }
+
+    /**
+     * @return the game given to the last {@link #startGame(Game)} (as is, with the moves played since), or if there was none, the one
+     *         read by {@link #replay(Runnable)}.
+     */
+    public synchronized Game getLastGame() {
+        return mCurrentGame != null ? mCurrentGame : mReplayedGame;
+    }
+
+    private Game readJournal() {
+        synchronized (mFileLock) {
+            if (!mFile.exists()) return null;
+            final byte[] data;
+            try {
+                data = readFile(mFile);
+            } catch (final IOException e) {
+                ModelLog.w(TAG, "Could not read " + mFile, e);
+                return null;
+            }
+            return replayRecords(ByteBuffer.wrap(data));
+        }
+    }
+
+    private static byte[] readFile(final File file) throws IOException {
+        final FileInputStream inputStream = new FileInputStream(file);
+        try {
+            final byte[] res = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < res.length) {
+                final int read = inputStream.read(res, offset, res.length - offset);
+                if (read == -1) break;
+                offset += read;
+            }
+            return res;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static Game replayRecords(final ByteBuffer buffer) {
+        final CRC32 crc = new CRC32();
+        Game res = null;
+        while (buffer.remaining() >= RECORD_HEADER_SIZE + RECORD_CRC_SIZE) {
+            final int start = buffer.position();
+            final byte type = buffer.get();
+            final int length = buffer.getShort() & 0xFFFF;
+            if (buffer.remaining() < length + RECORD_CRC_SIZE) break;
+            crc.reset();
+            crc.update(buffer.array(), start, RECORD_HEADER_SIZE + length);
+            final int payloadStart = buffer.position();
+            buffer.position(payloadStart + length);
+            if (buffer.getInt() != (int) crc.getValue()) break;
+            buffer.position(payloadStart);
+            try {
+                switch (type) {
+                    case TYPE_SNAPSHOT:
+                        final byte[] snapshot = new byte[length];
+                        buffer.get(snapshot);
+                        res = GameCodec.decode(snapshot);
+                    break;
+
+                    case TYPE_SET_GUESS:
+                        final int rowIndex = buffer.get() & 0xFF;
+                        final int holeIndex = buffer.get() & 0xFF;
+                        final int color = buffer.get();
+                        if (res != null) res.setGuess(rowIndex, holeIndex, color);
+                    break;
+
+                    case TYPE_SET_GUESS_CODE:
+                        final int codeRowIndex = buffer.get() & 0xFF;
+                        final long code = buffer.getLong();
+                        if (res != null) res.setGuessCode(codeRowIndex, code);
+                    break;
+
+                    case TYPE_VALIDATE_GUESS:
+                        if (res != null) res.validateGuess();
+                    break;
+                }
+            } catch (final RuntimeException e) {
+                // a move that does not apply to the game: keep the game as it was before it
+                ModelLog.w(TAG, "Stopping the replay at an invalid record", e);
+                break;
+            }
+            buffer.position(payloadStart + length + RECORD_CRC_SIZE);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms for the hot paths of the game, to compare builds on real devices.
+ * <p>
+ * Nothing is measured until {@link #setEnabled(boolean)} is called: a disabled probe costs one volatile read. Measuring does not allocate
+ * anything.
+ * <p>
+ * Typical use:
+ *
+ * <pre>
+ * private static final Instrumentation.Probe PROBE = Instrumentation.newProbe("Foo.bar");
+ *
+ * final long start = Instrumentation.start();
+ * try {
+ *     // ...
+ * } finally {
+ *     PROBE.stop(start);
+ * }
+ * </pre>
+ */
+public class Instrumentation {
+    /**
+     * Durations are counted in power of 2 buckets: bucket i holds the durations between 2^(i-1) (included) and 2^i (excluded)
+     * nanoseconds.
+     */
+    private static final int NB_BUCKETS = 64;
+
+    private static final List<Probe> sProbes = new ArrayList<Probe>();
+    private static volatile boolean sEnabled;
+
+    private Instrumentation() {}
+
+    public static class Probe {
+        private final String mName;
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mTotalDuration = new AtomicLong();
+        private final AtomicLong mMaxDuration = new AtomicLong();
+        private final AtomicLongArray mBuckets = new AtomicLongArray(NB_BUCKETS);
+
+        private Probe(final String name) {
+            mName = name;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Counts an event, without a duration.
+         */
+        public void increment() {
+            if (!sEnabled) return;
+            mCount.incrementAndGet();
+        }
+
+        /**
+         * Counts an event, and records its duration.
+         *
+         * @param start
+         *            the value returned by {@link Instrumentation#start()} when the event started.
+         */
+        public void stop(final long start) {
+            if (start == 0 || !sEnabled) return;
+            final long duration = Math.max(0, System.nanoTime() - start);
+            mCount.incrementAndGet();
+            mTotalDuration.addAndGet(duration);
+            mBuckets.incrementAndGet(NB_BUCKETS - Long.numberOfLeadingZeros(duration));
+            long max = mMaxDuration.get();
+            while (duration > max && !mMaxDuration.compareAndSet(max, duration)) {
+                max = mMaxDuration.get();
+            }
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+        /**
+         * @return an upper bound of the given percentile of the recorded durations, in nanoseconds, or 0 if no duration was recorded.
+         */
+        public long getPercentile(final int percentile) {
+            final long total = getNbDurations();
+            if (total == 0) return 0;
+            final long rank = (total * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < NB_BUCKETS; i++) {
+                seen += mBuckets.get(i);
+                if (seen >= rank) {
+                    return i == NB_BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+                }
+            }
+            return mMaxDuration.get();
+        }
+
+        private long getNbDurations() {
+            long res = 0;
+            for (int i = 0; i < NB_BUCKETS; i++) {
+                res += mBuckets.get(i);
+            }
+            return res;
+        }
+
+        private void reset() {
+            mCount.set(0);
+            mTotalDuration.set(0);
+            mMaxDuration.set(0);
+            for (int i = 0; i < NB_BUCKETS; i++) {
+                mBuckets.set(i, 0);
+            }
+        }
+
+        private void dump(final PrintWriter writer) {
+            final long count = mCount.get();
+            writer.print(mName);
+            writer.print(": count=");
+            writer.print(count);
+            final long nbDurations = getNbDurations();
+            if (nbDurations > 0) {
+                writer.print(" meanNs=");
+                writer.print(mTotalDuration.get() / nbDurations);
+                writer.print(" p50Ns<=");
+                writer.print(getPercentile(50));
+                writer.print(" p90Ns<=");
+                writer.print(getPercentile(90));
+                writer.print(" p99Ns<=");
+                writer.print(getPercentile(99));
+                writer.print(" maxNs=");
+                writer.print(mMaxDuration.get());
+            }
+            writer.println();
+        }
+    }
+
+    /**
+     * Creates a probe, typically stored in a static field. Probes are never released.
+     */
+    public static Probe newProbe(final String name) {
+        final Probe res = new Probe(name);
+        synchronized (sProbes) {
+            sProbes.add(res);
+        }
+        return res;
+    }
+
+    public static void setEnabled(final boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @return the start time to pass to {@link Probe#stop(long)}, or 0 if nothing is measured.
+     */
+    public static long start() {
+        if (!sEnabled) return 0;
+        final long res = System.nanoTime();
+        // 0 means "not measured"
+        return res == 0 ? 1 : res;
+    }
+
+    /**
+     * Resets all the probes.
+     */
+    public static void reset() {
+        synchronized (sProbes) {
+            for (final Probe probe : sProbes) {
+                probe.reset();
+            }
+        }
+    }
+
+    /**
+     * Writes the values of all the probes, one line per probe.
+     */
+    public static void dump(final PrintWriter writer) {
+        synchronized (sProbes) {
+            for (final Probe probe : sProbes) {
+                probe.dump(writer);
+            }
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+/**
+ * Logging for the model and the solvers, which do not depend on Android.
+ * <p>
+ * Nothing is logged until a {@link Logger} is installed with {@link #setLogger(Logger)}: the Android app installs one backed by
+ * {@code android.util.Log}, other users of the model can install their own or none.
+ */
+public class ModelLog {
+    public static interface Logger {
+        void d(String tag, String message);
+
+        void w(String tag, String message, Throwable throwable);
+    }
+
+    private static volatile Logger sLogger;
+
+    private ModelLog() {}
+
+    /**
+     * @param logger
+     *            the logger to use from now on, or {@code null} to stop logging.
+     */
+    public static void setLogger(final Logger logger) {
+        sLogger = logger;
+    }
+
+    /**
+     * @return {@code true} if a logger is installed. Check it before building a costly message.
+     */
+    public static boolean isEnabled() {
+        return sLogger != null;
+    }
+
+    public static void d(final String tag, final String message) {
+        final Logger logger = sLogger;
+        if (logger != null) logger.d(tag, message);
+    }
+
+    public static void w(final String tag, final String message, final Throwable throwable) {
+        final Logger logger = sLogger;
+        if (logger != null) logger.w(tag, message, throwable);
+    }
+}
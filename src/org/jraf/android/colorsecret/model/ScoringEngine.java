@@ -0,0 +1,291 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+import java.io.Serializable;
+
+/**
+ * Scores guesses against secrets.
+ * <p>
+ * Colors are numbered from 0 to the number of colors (excluded), the first ones matching the ordinals of {@link CodePeg}.<br/>
+ * Codes are packed into a {@code long}, {@value #BITS_PER_PEG} bits per hole (hole 0 in the lowest bits), each hole holding its color.
+ * <br/>
+ * Scores are packed into an {@code int}: the number of {@link HintPeg#COLOR_AND_POSITION} pegs in bits 4-7, the number of
+ * {@link HintPeg#COLOR_ONLY} pegs in bits 0-3.
+ * <p>
+ * {@link #score(long, long)} does not allocate anything.
+ * <p>
+ * The code space can also be enumerated: each code has an index between 0 and {@link #getCodeSpaceSize()} (excluded), which is its
+ * value written in base "number of colors", hole 0 being the least significant digit. {@link #nextCode(long)} walks the code space in
+ * this order without going through the indices.
+ */
+public class ScoringEngine implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int BITS_PER_PEG = 4;
+    public static final int MAX_NB_HOLES = 15;
+    public static final int MAX_NB_COLORS = 1 << BITS_PER_PEG;
+
+    /**
+     * Returned by {@link #nextCode(long)} after the last code.
+     */
+    public static final long NO_CODE = -1L;
+
+    private static final long PEG_MASK = (1L << BITS_PER_PEG) - 1;
+    private static final int COUNT_BITS = 4;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final int mNbHoles;
+    private final int mNbColors;
+    private final long mCodeSpaceSize;
+
+    /**
+     * Creates a scoring engine for the colors of {@link CodePeg}.
+     *
+     * @param nbHoles
+     *            number of holes for each row.
+     */
+    public ScoringEngine(final int nbHoles) {
+        this(nbHoles, CodePeg.values().length);
+    }
+
+    /**
+     * @param nbHoles
+     *            number of holes for each row.
+     * @param nbColors
+     *            number of colors.
+     */
+    public ScoringEngine(final int nbHoles, final int nbColors) {
+        if (nbHoles < 1 || nbHoles > MAX_NB_HOLES) {
+            throw new IllegalArgumentException("nbHoles must be between 1 and " + MAX_NB_HOLES);
+        }
+        if (nbColors < 1 || nbColors > MAX_NB_COLORS) {
+            throw new IllegalArgumentException("nbColors must be between 1 and " + MAX_NB_COLORS);
+        }
+        mNbHoles = nbHoles;
+        mNbColors = nbColors;
+        long codeSpaceSize = 1;
+        for (int i = 0; i < nbHoles; i++) {
+            codeSpaceSize *= nbColors;
+        }
+        mCodeSpaceSize = codeSpaceSize;
+    }
+
+    public int getNbHoles() {
+        return mNbHoles;
+    }
+
+    public int getNbColors() {
+        return mNbColors;
+    }
+
+
+    /*
+     * Codes.
+     */
+
+    public long encode(final CodePeg... codePegs) {
+        if (codePegs.length != mNbHoles) {
+            throw new IllegalArgumentException("You must pass exactly " + mNbHoles + " code pegs");
+        }
+        long res = 0;
+        for (int i = 0; i < mNbHoles; i++) {
+            res = setPeg(res, i, codePegs[i].ordinal());
+        }
+        if (!isValid(res)) {
+            throw new IllegalArgumentException("Only " + mNbColors + " colors are allowed");
+        }
+        return res;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if a color of the code has no matching {@link CodePeg}.
+     */
+    public CodePeg[] decode(final long code) {
+        final CodePeg[] values = CodePeg.values();
+        final CodePeg[] res = new CodePeg[mNbHoles];
+        for (int i = 0; i < mNbHoles; i++) {
+            final int color = getPeg(code, i);
+            if (color >= values.length) {
+                throw new IllegalArgumentException("No code peg for color " + color);
+            }
+            res[i] = values[color];
+        }
+        return res;
+    }
+
+    /**
+     * @return the colors of the given code, one hexadecimal digit per hole, starting with hole 0.
+     */
+    public String toString(final long code) {
+        final StringBuilder res = new StringBuilder(mNbHoles);
+        for (int i = 0; i < mNbHoles; i++) {
+            res.append(Character.forDigit(getPeg(code, i), MAX_NB_COLORS));
+        }
+        return res.toString();
+    }
+
+    /**
+     * @return {@code true} if the given code only uses the holes and colors of this engine.
+     */
+    public boolean isValid(final long code) {
+        if (code >>> (mNbHoles * BITS_PER_PEG) != 0) {
+            return false;
+        }
+        for (int i = 0; i < mNbHoles; i++) {
+            if (getPeg(code, i) >= mNbColors) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the color at the given hole of the given code.
+     */
+    public static int getPeg(final long code, final int holeIndex) {
+        return (int) ((code >>> (holeIndex * BITS_PER_PEG)) & PEG_MASK);
+    }
+
+    /**
+     * @return the given code, with the given color at the given hole.
+     */
+    public static long setPeg(final long code, final int holeIndex, final int color) {
+        final int shift = holeIndex * BITS_PER_PEG;
+        return code & ~(PEG_MASK << shift) | (long) color << shift;
+    }
+
+
+    /*
+     * Code space.
+     */
+
+    /**
+     * @return the number of possible codes.
+     */
+    public long getCodeSpaceSize() {
+        return mCodeSpaceSize;
+    }
+
+    /**
+     * @return the code at the given index of the code space.
+     */
+    public long codeAt(long index) {
+        long res = 0;
+        for (int i = 0; i < mNbHoles; i++) {
+            res |= (index % mNbColors) << (i * BITS_PER_PEG);
+            index /= mNbColors;
+        }
+        return res;
+    }
+
+    /**
+     * @return the index of the given code in the code space.
+     */
+    public long indexOf(final long code) {
+        long res = 0;
+        for (int i = mNbHoles - 1; i >= 0; i--) {
+            res = res * mNbColors + getPeg(code, i);
+        }
+        return res;
+    }
+
+    /**
+     * @return the code following the given one in the code space, or {@link #NO_CODE} if the given code is the last one.
+     */
+    public long nextCode(long code) {
+        for (int i = 0; i < mNbHoles; i++) {
+            final int shift = i * BITS_PER_PEG;
+            if (((code >>> shift) & PEG_MASK) < mNbColors - 1) {
+                return code + (1L << shift);
+            }
+            // this hole wraps around to color 0, carry on the next one
+            code &= ~(PEG_MASK << shift);
+        }
+        return NO_CODE;
+    }
+
+
+    /*
+     * Scores.
+     */
+
+    /**
+     * Scores a guess against a secret.
+     *
+     * @return the packed score.
+     */
+    public int score(final long guess, final long secret) {
+        int nbColorAndPosition = 0;
+        // per color histograms, COUNT_BITS bits per color
+        long guessCounts = 0;
+        long secretCounts = 0;
+        for (int i = 0; i < mNbHoles; i++) {
+            final int shift = i * BITS_PER_PEG;
+            final int guessPeg = (int) ((guess >>> shift) & PEG_MASK);
+            final int secretPeg = (int) ((secret >>> shift) & PEG_MASK);
+            if (guessPeg == secretPeg) {
+                nbColorAndPosition++;
+            }
+            guessCounts += 1L << (guessPeg * COUNT_BITS);
+            secretCounts += 1L << (secretPeg * COUNT_BITS);
+        }
+
+        // the number of common colors, regardless of the position, is the sum of the per color minimums
+        int nbCommon = 0;
+        for (int c = 0; c < mNbColors; c++) {
+            final int shift = c * COUNT_BITS;
+            final int guessCount = (int) ((guessCounts >>> shift) & COUNT_MASK);
+            final int secretCount = (int) ((secretCounts >>> shift) & COUNT_MASK);
+            nbCommon += guessCount < secretCount ? guessCount : secretCount;
+        }
+        return packScore(nbColorAndPosition, nbCommon - nbColorAndPosition);
+    }
+
+    public boolean isWinning(final int score) {
+        return getNbColorAndPosition(score) == mNbHoles;
+    }
+
+    /**
+     * @return the number of possible packed scores, all of them being lower than this number.
+     */
+    public int getNbScores() {
+        // the highest packed score is "all color+position"
+        return packScore(mNbHoles, 0) + 1;
+    }
+
+    public static int packScore(final int nbColorAndPosition, final int nbColorOnly) {
+        return nbColorAndPosition << COUNT_BITS | nbColorOnly;
+    }
+
+    public static int getNbColorAndPosition(final int score) {
+        return score >>> COUNT_BITS;
+    }
+
+    public static int getNbColorOnly(final int score) {
+        return (int) (score & COUNT_MASK);
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Draws secrets, as packed codes (see {@link ScoringEngine}).
+ * <p>
+ * Secrets are either random, from a fast generator private to each thread (no locking, no allocation once the thread has drawn its first
+ * secret), or derived from a seed, the same seed always giving the same secret (for instance one puzzle per day, shared by all the
+ * players).
+ * <p>
+ * The secrets can be constrained to use an exact number of distinct colors: when this number is the number of holes, no color is
+ * repeated. They can also be constrained to a difficulty (see {@link DifficultyIndex}). Every secret allowed by the constraint is equally
+ * likely.
+ * <p>
+ * The random numbers come from SplitMix64, which is much faster than {@link java.util.Random} and of better quality, but not
+ * cryptographically secure: do not use it where the secret must not be predictable from the previous ones.
+ */
+public class SecretGenerator {
+    /**
+     * No constraint on the number of distinct colors.
+     */
+    public static final int ANY_NB_COLORS = 0;
+
+    /**
+     * Above this code space size, the codes matching a constraint are not enumerated: only the "no repeated colors" constraint is
+     * allowed.
+     */
+    public static final int MAX_TABLE_CODE_SPACE_SIZE = 1 << 20;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long BITS_31_MASK = 0x7FFFFFFFL;
+
+    /**
+     * Gives a different initial state to each thread, even when created at the same time.
+     */
+    private static final AtomicLong sSeedUniquifier = new AtomicLong(System.nanoTime());
+
+    /**
+     * The state of the generator of each thread, in a one element array so that it can be updated in place.
+     */
+    private static final ThreadLocal<long[]> sThreadStates = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            final long seed = sSeedUniquifier.addAndGet(GOLDEN_GAMMA) ^ System.nanoTime() ^ Thread.currentThread().getId();
+            return new long[] { mix(seed) };
+        }
+    };
+
+    private final int mNbHoles;
+    private final int mNbColors;
+    private final int mNbDistinctColors;
+
+    /**
+     * The codes matching the constraint, or {@code null} if the secrets are drawn directly.
+     */
+    private final long[] mCodes;
+
+    /**
+     * Creates a generator of secrets without constraint.
+     */
+    public SecretGenerator(final ScoringEngine scoringEngine) {
+        this(scoringEngine, ANY_NB_COLORS);
+    }
+
+    /**
+     * @param nbDistinctColors
+     *            the exact number of distinct colors of the secrets, or {@link #ANY_NB_COLORS}.
+     * @throws IllegalArgumentException
+     *             if no secret can have this number of distinct colors, or if the code space is larger than
+     *             {@link #MAX_TABLE_CODE_SPACE_SIZE} and the constraint is neither {@link #ANY_NB_COLORS} nor the number of holes.
+     */
+    public SecretGenerator(final ScoringEngine scoringEngine, final int nbDistinctColors) {
+        mNbHoles = scoringEngine.getNbHoles();
+        mNbColors = scoringEngine.getNbColors();
+        mNbDistinctColors = nbDistinctColors;
+        if (nbDistinctColors == ANY_NB_COLORS) {
+            mCodes = null;
+            return;
+        }
+        if (nbDistinctColors < 1 || nbDistinctColors > mNbHoles || nbDistinctColors > mNbColors) {
+            throw new IllegalArgumentException("No secret has " + nbDistinctColors + " distinct colors with " + mNbHoles + " holes and "
+                    + mNbColors + " colors");
+        }
+        final long codeSpaceSize = scoringEngine.getCodeSpaceSize();
+        if (codeSpaceSize > MAX_TABLE_CODE_SPACE_SIZE) {
+            if (nbDistinctColors == mNbHoles) {
+                // no repeated colors: drawn directly
+                mCodes = null;
+                return;
+            }
+            throw new IllegalArgumentException("The code space is too large for this constraint (" + codeSpaceSize + " codes)");
+        }
+        // enumerate the matching codes once, drawing a secret is then a single random index
+        final long[] codes = new long[(int) codeSpaceSize];
+        int nbCodes = 0;
+        for (long code = 0; code != ScoringEngine.NO_CODE; code = scoringEngine.nextCode(code)) {
+            if (getNbDistinctColors(code) == nbDistinctColors) {
+                codes[nbCodes++] = code;
+            }
+        }
+        mCodes = new long[nbCodes];
+        System.arraycopy(codes, 0, mCodes, 0, nbCodes);
+    }
+
+    /**
+     * Creates a generator of the secrets that the reference solver of the given index finds in {@code minNbGuesses} to
+     * {@code maxNbGuesses} guesses (included). Creating it goes through the whole index once, drawing a secret is then a single random
+     * index.
+     *
+     * @throws IllegalArgumentException
+     *             if no secret of the index is in this range.
+     */
+    public SecretGenerator(final DifficultyIndex difficultyIndex, final int minNbGuesses, final int maxNbGuesses) {
+        final ScoringEngine scoringEngine = difficultyIndex.getScoringEngine();
+        mNbHoles = scoringEngine.getNbHoles();
+        mNbColors = scoringEngine.getNbColors();
+        mNbDistinctColors = ANY_NB_COLORS;
+        mCodes = difficultyIndex.getSecrets(minNbGuesses, maxNbGuesses);
+        if (mCodes.length == 0) {
+            throw new IllegalArgumentException("No secret needs between " + minNbGuesses + " and " + maxNbGuesses + " guesses");
+        }
+    }
+
+    private int getNbDistinctColors(final long code) {
+        int colors = 0;
+        for (int i = 0; i < mNbHoles; i++) {
+            colors |= 1 << ScoringEngine.getPeg(code, i);
+        }
+        return Integer.bitCount(colors);
+    }
+
+    public int getNbHoles() {
+        return mNbHoles;
+    }
+
+    public int getNbColors() {
+        return mNbColors;
+    }
+
+    public int getNbDistinctColors() {
+        return mNbDistinctColors;
+    }
+
+
+    /*
+     * Random secrets.
+     */
+
+    /**
+     * @return a random secret, from the generator of the current thread.
+     */
+    public long next() {
+        return next(sThreadStates.get());
+    }
+
+    /**
+     * Fills the given buffer with random secrets, from the generator of the current thread.
+     */
+    public void fill(final long[] secrets, final int offset, final int length) {
+        fill(sThreadStates.get(), secrets, offset, length);
+    }
+
+
+    /*
+     * Seeded secrets.
+     */
+
+    /**
+     * @return the secret for the given seed, always the same for a given seed and configuration.
+     */
+    public long next(final long seed) {
+        return next(new long[] { seed });
+    }
+
+    /**
+     * Fills the given buffer with the sequence of secrets for the given seed, always the same for a given seed and configuration.
+     */
+    public void fill(final long seed, final long[] secrets, final int offset, final int length) {
+        fill(new long[] { seed }, secrets, offset, length);
+    }
+
+
+    /*
+     * Generation.
+     */
+
+    private void fill(final long[] state, final long[] secrets, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset + length > secrets.length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " size=" + secrets.length);
+        }
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            secrets[i] = next(state);
+        }
+    }
+
+    private long next(final long[] state) {
+        if (mCodes != null) {
+            return mCodes[nextInt(state, mCodes.length)];
+        }
+        long res = 0;
+        if (mNbDistinctColors == ANY_NB_COLORS) {
+            for (int i = 0; i < mNbHoles; i++) {
+                res = ScoringEngine.setPeg(res, i, nextInt(state, mNbColors));
+            }
+        } else {
+            // no repeated colors: hole i takes one of the colors not used yet, picked by its rank among them
+            int freeColors = (1 << mNbColors) - 1;
+            for (int i = 0; i < mNbHoles; i++) {
+                int candidates = freeColors;
+                for (int rank = nextInt(state, mNbColors - i); rank > 0; rank--) {
+                    // drop the lowest free color
+                    candidates &= candidates - 1;
+                }
+                final int color = Integer.numberOfTrailingZeros(candidates);
+                freeColors &= ~(1 << color);
+                res = ScoringEngine.setPeg(res, i, color);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return a uniformly distributed number between 0 and bound (excluded).
+     */
+    private static int nextInt(final long[] state, final int bound) {
+        // multiply a 31 bit number by the bound, keeping the upper 31 bits; reject the few draws that would make the low results more
+        // frequent (Lemire's method, the division is only needed for them)
+        long product = nextBits31(state) * bound;
+        long low = product & BITS_31_MASK;
+        if (low < bound) {
+            final long threshold = (BITS_31_MASK + 1) % bound;
+            while (low < threshold) {
+                product = nextBits31(state) * bound;
+                low = product & BITS_31_MASK;
+            }
+        }
+        return (int) (product >>> 31);
+    }
+
+    private static long nextBits31(final long[] state) {
+        state[0] += GOLDEN_GAMMA;
+        return mix(state[0]) >>> 33;
+    }
+
+    /**
+     * The SplitMix64 output function.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The file format shared by the tables computed over the whole code space ({@link FeedbackTable}, {@link DifficultyIndex}): a header
+ * (magic, version, number of holes, number of colors, 4 bytes each) followed by the data, which is mapped in memory when read.
+ */
+class TableFile {
+    static final int HEADER_SIZE = 16;
+
+    private TableFile() {}
+
+    /**
+     * Maps the data of the given file in memory.
+     *
+     * @throws IOException
+     *             if the file could not be read, or does not have the given magic, version and data size, or was not written for the
+     *             configuration of the given scoring engine.
+     */
+    static ByteBuffer map(final File file, final int magic, final int version, final ScoringEngine scoringEngine, final long dataSize)
+            throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final long expectedLength = HEADER_SIZE + dataSize;
+            if (channel.size() != expectedLength) {
+                throw new IOException("Unexpected size for " + file + ": " + channel.size() + " instead of " + expectedLength);
+            }
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, expectedLength);
+            if (buffer.getInt() != magic || buffer.getInt() != version || buffer.getInt() != scoringEngine.getNbHoles()
+                    || buffer.getInt() != scoringEngine.getNbColors()) {
+                throw new IOException(file + " is not the expected table for this configuration");
+            }
+            return buffer.slice();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Writes the given data (from 0 to its capacity) to the given file, so it can be mapped later with
+     * {@link #map(File, int, int, ScoringEngine, long)}.
+     * <p>
+     * The file is written next to the target then renamed over it, so that a process killed in the middle never leaves a truncated
+     * table behind.
+     */
+    static void save(final File file, final int magic, final int version, final ScoringEngine scoringEngine, final ByteBuffer data)
+            throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(magic).putInt(version).putInt(scoringEngine.getNbHoles()).putInt(scoringEngine.getNbColors());
+        header.flip();
+        final ByteBuffer body = data.duplicate();
+        body.clear();
+
+        final File tmpFile = new File(file.getPath() + ".tmp");
+        final FileOutputStream outputStream = new FileOutputStream(tmpFile);
+        boolean written = false;
+        try {
+            final FileChannel channel = outputStream.getChannel();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+            outputStream.getFD().sync();
+            written = true;
+        } finally {
+            outputStream.close();
+            if (!written) tmpFile.delete();
+        }
+        if (!tmpFile.renameTo(file)) {
+            tmpFile.delete();
+            throw new IOException("Could not rename " + tmpFile + " to " + file);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.solver;
+
+import org.jraf.android.colorsecret.model.Board;
+import org.jraf.android.colorsecret.model.Game;
+
+/**
+ * Remembers the guesses of a deterministic solver (one whose guess only depends on the previous guesses and their scores, like
+ * {@link StrategySolver} and {@link SamplingSolver}), as a tree indexed by score.
+ * <p>
+ * Once the tree is warm, playing a game costs one lookup per guess instead of a full evaluation. This is meant for playing a lot of
+ * games with the same configuration; like the solver it wraps, it must not be used by several threads at the same time.
+ */
+public class CachingSolver implements Solver {
+    private final Solver mSolver;
+    private Node mRoot;
+    private int mNbHoles;
+    private int mNbColors;
+    private int mNbScores;
+
+    private static class Node {
+        final long mGuess;
+        Node[] mChildren;
+
+        Node(final long guess) {
+            mGuess = guess;
+        }
+    }
+
+    public CachingSolver(final Solver solver) {
+        mSolver = solver;
+    }
+
+    public long nextGuess(final Game game) {
+        final int nbGuesses = game.getCurrentGuess();
+        if (mRoot == null || game.getNbHoles() != mNbHoles || game.getNbColors() != mNbColors) {
+            if (nbGuesses != 0) {
+                // the tree can only be started from the first guess
+                return mSolver.nextGuess(game);
+            }
+            // first game, or a different configuration: start a new tree (computed first, in case it is cancelled)
+            final Node root = new Node(mSolver.nextGuess(game));
+            mNbHoles = game.getNbHoles();
+            mNbColors = game.getNbColors();
+            mNbScores = game.getScoringEngine().getNbScores();
+            mRoot = root;
+        }
+
+        if (nbGuesses == 0) {
+            return mRoot.mGuess;
+        }
+        final Board board = game.getBoard();
+        Node node = mRoot;
+        for (int i = 0; i < nbGuesses; i++) {
+            if (board.getCode(i) != node.mGuess) {
+                // this game did not follow the solver: the tree does not apply
+                return mSolver.nextGuess(game);
+            }
+            if (node.mChildren == null) {
+                node.mChildren = new Node[mNbScores];
+            }
+            final int score = board.getScore(i);
+            Node child = node.mChildren[score];
+            if (child == null) {
+                if (i < nbGuesses - 1) {
+                    // a branch we never computed the guess for, i.e. a game that was not played with this solver from the start
+                    return mSolver.nextGuess(game);
+                }
+                child = new Node(mSolver.nextGuess(game));
+                node.mChildren[score] = child;
+            }
+            node = child;
+        }
+        return node.mGuess;
+    }
+}
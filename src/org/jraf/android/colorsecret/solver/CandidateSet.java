@@ -0,0 +1,106 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.solver;
+
+import org.jraf.android.colorsecret.model.FeedbackTable;
+
+/**
+ * The codes that can still be the secret, as code indices (see {@link org.jraf.android.colorsecret.model.ScoringEngine#codeAt(long)}).
+ * <p>
+ * The set starts with the whole code space, and is shrunk in place after each guess with {@link #retain(int, int)}, so the work done
+ * for a guess is proportional to the number of remaining candidates, not to the length of the history.
+ */
+public class CandidateSet {
+    private final FeedbackTable mFeedbackTable;
+    private final int[] mCandidates;
+    private final long[] mBits;
+    private int mSize;
+
+    public CandidateSet(final FeedbackTable feedbackTable) {
+        mFeedbackTable = feedbackTable;
+        final int codeSpaceSize = feedbackTable.getSize();
+        mCandidates = new int[codeSpaceSize];
+        mBits = new long[(codeSpaceSize + 63) >>> 6];
+        reset();
+    }
+
+    /**
+     * Puts back every code of the code space in this set.
+     */
+    public void reset() {
+        final int codeSpaceSize = mCandidates.length;
+        for (int i = 0; i < codeSpaceSize; i++) {
+            mCandidates[i] = i;
+        }
+        mSize = codeSpaceSize;
+        for (int i = 0; i < mBits.length; i++) {
+            mBits[i] = -1L;
+        }
+    }
+
+    /**
+     * Removes the codes that would not have given the given score to the given guess.
+     *
+     * @param guess
+     *            the code index of the guess.
+     * @param score
+     *            the packed score this guess got.
+     */
+    public void retain(final int guess, final int score) {
+        int newSize = 0;
+        for (int i = 0; i < mSize; i++) {
+            final int candidate = mCandidates[i];
+            if (mFeedbackTable.score(guess, candidate) == score) {
+                mCandidates[newSize++] = candidate;
+            } else {
+                mBits[candidate >>> 6] &= ~(1L << candidate);
+            }
+        }
+        mSize = newSize;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the code index of the candidate at the given position, between 0 and {@link #size()} (excluded). The candidates are kept in
+     *         increasing code index order.
+     */
+    public int get(final int position) {
+        return mCandidates[position];
+    }
+
+    public boolean contains(final int code) {
+        return (mBits[code >>> 6] & (1L << code)) != 0;
+    }
+
+    /**
+     * @return the array backing this set, whose first {@link #size()} elements are the candidates. Must not be modified.
+     */
+    int[] array() {
+        return mCandidates;
+    }
+}
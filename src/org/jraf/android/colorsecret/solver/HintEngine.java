@@ -0,0 +1,194 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.solver;
+
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.jraf.android.colorsecret.model.FeedbackTable;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.GameCodec;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+
+/**
+ * Suggests guesses to a player, computed in the background.
+ * <p>
+ * The engine plays its own copy of the game, only used from its executor, and updated with each validated guess: this way the game can
+ * keep being played while a hint is computed, and the solver keeps its candidates from one hint to the next instead of starting over.
+ * <p>
+ * The methods of this class must all be called from the same thread, typically the UI thread. They only queue work for the executor.
+ */
+public class HintEngine {
+    public static interface Callback {
+        /**
+         * Called from the executor of the engine, unless the hint has been cancelled.
+         *
+         * @param guess
+         *            the packed code of the suggested guess (see {@link ScoringEngine}).
+         */
+        void onHint(long guess);
+    }
+
+    private static final String FEEDBACK_TABLE_FILE_NAME = "feedback-%d-%d.bin";
+
+    /**
+     * The largest feedback table built on the device, in bytes (one per pair of codes). 4 holes with 6 colors take about 1.6 MB, larger
+     * configurations use a {@link SamplingSolver} instead.
+     */
+    private static final long MAX_FEEDBACK_TABLE_SIZE = 2 * 1024 * 1024;
+
+    private final Executor mExecutor;
+    private final File mFeedbackTableDir;
+
+    /*
+     * Only used from the executor.
+     */
+    private Game mGame;
+    private boolean mHardMode;
+    private Solver mSolver;
+    private ScoringEngine mSolverScoringEngine;
+
+    private FutureTask<Void> mHintTask;
+
+    /**
+     * @param executor
+     *            the executor to compute the hints with. It must run its tasks one at a time, in the order they are given.
+     * @param feedbackTableDir
+     *            the directory to keep the feedback tables in between runs (see {@link FeedbackTable#mapOrBuild(File, ScoringEngine)}),
+     *            or {@code null} to build them each time.
+     */
+    public HintEngine(final Executor executor, final File feedbackTableDir) {
+        mExecutor = executor;
+        mFeedbackTableDir = feedbackTableDir;
+    }
+
+    /**
+     * Starts suggesting guesses for the given game, which can be a new one or a game in progress.
+     */
+    public void setGame(final Game game) {
+        cancelHint();
+        // the copy is taken now, in the calling thread
+        final byte[] gameData = GameCodec.encode(game);
+        final boolean hardMode = game.isHardMode();
+        mExecutor.execute(new Runnable() {
+            public void run() {
+                mGame = GameCodec.decode(gameData);
+                mHardMode = hardMode;
+            }
+        });
+    }
+
+    /**
+     * Must be called after each guess validated in the game given to {@link #setGame(Game)}.
+     *
+     * @param guess
+     *            the packed code of the guess (see {@link ScoringEngine}).
+     */
+    public void onGuessValidated(final long guess) {
+        cancelHint();
+        mExecutor.execute(new Runnable() {
+            public void run() {
+                mGame.setGuessCode(mGame.getCurrentGuess(), guess);
+                mGame.validateGuess();
+            }
+        });
+    }
+
+    /**
+     * @param hardMode
+     *            {@code true} to only suggest codes that can be the secret (see {@link Game#setHardMode(boolean)}).
+     */
+    public void setHardMode(final boolean hardMode) {
+        cancelHint();
+        mExecutor.execute(new Runnable() {
+            public void run() {
+                mHardMode = hardMode;
+            }
+        });
+    }
+
+    /**
+     * Starts computing a hint for the current guess, cancelling the previous one if it is not done yet.
+     */
+    public void requestHint(final Callback callback) {
+        cancelHint();
+        mHintTask = new FutureTask<Void>(new Runnable() {
+            public void run() {
+                final long guess;
+                try {
+                    guess = getSolver().nextGuess(mGame);
+                } catch (final CancellationException e) {
+                    return;
+                }
+                if (!Thread.currentThread().isInterrupted()) {
+                    callback.onHint(guess);
+                }
+            }
+        }, null);
+        mExecutor.execute(mHintTask);
+    }
+
+    /**
+     * Cancels the hint being computed, if any: its callback will not be called, unless it is being called right now.
+     */
+    public void cancelHint() {
+        if (mHintTask != null) {
+            mHintTask.cancel(true);
+            mHintTask = null;
+        }
+    }
+
+    /**
+     * Must be called from the executor.
+     */
+    private Solver getSolver() {
+        final ScoringEngine scoringEngine = mGame.getScoringEngine();
+        if (mSolver == null || scoringEngine.getNbHoles() != mSolverScoringEngine.getNbHoles()
+                || scoringEngine.getNbColors() != mSolverScoringEngine.getNbColors()) {
+            final long codeSpaceSize = scoringEngine.getCodeSpaceSize();
+            // divided rather than squared, which could overflow
+            if (codeSpaceSize <= MAX_FEEDBACK_TABLE_SIZE / codeSpaceSize) {
+                final FeedbackTable feedbackTable;
+                if (mFeedbackTableDir == null) {
+                    feedbackTable = FeedbackTable.build(scoringEngine, 1);
+                } else {
+                    final String fileName = String.format(FEEDBACK_TABLE_FILE_NAME, scoringEngine.getNbHoles(), scoringEngine.getNbColors());
+                    feedbackTable = FeedbackTable.mapOrBuild(new File(mFeedbackTableDir, fileName), scoringEngine);
+                }
+                mSolver = new KnuthSolver(feedbackTable);
+            } else {
+                // only plays consistent codes
+                mSolver = new SamplingSolver(Strategy.MINIMAX);
+            }
+            mSolverScoringEngine = scoringEngine;
+        }
+        if (mSolver instanceof StrategySolver) {
+            ((StrategySolver) mSolver).setConsistentOnly(mHardMode);
+        }
+        return mSolver;
+    }
+}
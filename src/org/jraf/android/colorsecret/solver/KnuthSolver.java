@@ -0,0 +1,52 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.solver;
+
+import java.util.concurrent.ExecutorService;
+
+import org.jraf.android.colorsecret.model.FeedbackTable;
+
+/**
+ * Knuth's minimax solver: plays the code that minimizes the size of the largest group of remaining candidates it could leave, preferring
+ * codes that could be the secret, then the lowest code index. Finds any secret of the 4 holes / 6 colors game in at most 5 guesses.
+ */
+public class KnuthSolver extends StrategySolver {
+    /**
+     * Creates a single-threaded solver.
+     */
+    public KnuthSolver(final FeedbackTable feedbackTable) {
+        super(feedbackTable, Strategy.MINIMAX);
+    }
+
+    /**
+     * @param executorService
+     *            the executor to split the evaluation of the guesses across, or {@code null} to evaluate them in the calling thread.
+     * @param nbThreads
+     *            number of threads of the given executor.
+     */
+    public KnuthSolver(final FeedbackTable feedbackTable, final ExecutorService executorService, final int nbThreads) {
+        super(feedbackTable, Strategy.MINIMAX, executorService, nbThreads);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.solver;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import org.jraf.android.colorsecret.model.Board;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+
+/**
+ * A solver for games whose code space is too large for a {@link org.jraf.android.colorsecret.model.FeedbackTable}.
+ * <p>
+ * The code space is streamed lazily, in code index order, looking for codes consistent with all the validated rows. At most
+ * {@code sampleSize} of them are kept, and the next guess is the best of them according to a {@link Strategy}, rated against the sample
+ * only (ties: the lowest code index).<br/>
+ * A code found inconsistent stays so since the history only grows, so the stream is never rewound during a game: a whole game walks the
+ * code space at most once, and never holds more than {@code sampleSize} codes.
+ * <p>
+ * Like {@link StrategySolver}, a solver keeps its state between calls and must not be used by several threads at the same time.
+ */
+public class SamplingSolver implements Solver {
+    public static final int DEFAULT_SAMPLE_SIZE = 500;
+
+    /**
+     * The interruption of the thread is checked every 4096 codes streamed, and every 16 guesses evaluated.
+     */
+    private static final int SAMPLE_CANCELLATION_CHECK_MASK = 4095;
+    private static final int EVALUATE_CANCELLATION_CHECK_MASK = 15;
+
+    private final Strategy mStrategy;
+    private final long[] mSample;
+
+    private Game mGame;
+    private ScoringEngine mScoringEngine;
+    private int[] mPartitionSizes;
+    private long[] mGuesses;
+    private int[] mScores;
+    private int mNbGuessesApplied;
+    private int mNbSampled;
+    private long mNextCode;
+
+    public SamplingSolver(final Strategy strategy) {
+        this(strategy, DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * @param sampleSize
+     *            maximum number of consistent codes to choose the next guess from.
+     */
+    public SamplingSolver(final Strategy strategy, final int sampleSize) {
+        mStrategy = strategy;
+        mSample = new long[sampleSize];
+    }
+
+    public Strategy getStrategy() {
+        return mStrategy;
+    }
+
+    public long nextGuess(final Game game) {
+        update(game);
+        sample();
+        if (mNbSampled == 0) {
+            throw new IllegalStateException("No code is consistent with the hints of this game");
+        }
+        if (mNbSampled == 1) {
+            return mSample[0];
+        }
+        return mSample[evaluate()];
+    }
+
+    /**
+     * Adds the rows validated since the last call to the history and drops the sampled codes they contradict, or starts over if this
+     * is not the same game.
+     */
+    private void update(final Game game) {
+        final int nbGuesses = game.getCurrentGuess();
+        if (game != mGame || nbGuesses < mNbGuessesApplied) {
+            mGame = game;
+            mScoringEngine = game.getScoringEngine();
+            mPartitionSizes = new int[mScoringEngine.getNbScores()];
+            mGuesses = new long[game.getNbRows()];
+            mScores = new int[game.getNbRows()];
+            mNbGuessesApplied = 0;
+            mNbSampled = 0;
+            mNextCode = 0;
+        }
+        if (mNbGuessesApplied == nbGuesses) {
+            return;
+        }
+        final Board board = game.getBoard();
+        for (int i = mNbGuessesApplied; i < nbGuesses; i++) {
+            final long guess = board.getCode(i);
+            final int score = board.getScore(i);
+            mGuesses[i] = guess;
+            mScores[i] = score;
+
+            int newNbSampled = 0;
+            for (int j = 0; j < mNbSampled; j++) {
+                final long code = mSample[j];
+                if (mScoringEngine.score(guess, code) == score) {
+                    mSample[newNbSampled++] = code;
+                }
+            }
+            mNbSampled = newNbSampled;
+        }
+        mNbGuessesApplied = nbGuesses;
+    }
+
+    /**
+     * Continues streaming the code space until the sample is full or the code space is exhausted.
+     */
+    private void sample() {
+        long code = mNextCode;
+        int nbStreamed = 0;
+        codes: while (mNbSampled < mSample.length && code != ScoringEngine.NO_CODE) {
+            if ((++nbStreamed & SAMPLE_CANCELLATION_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                // the next call will continue from here
+                mNextCode = code;
+                throw new CancellationException("Interrupted while computing the next guess");
+            }
+            final long candidate = code;
+            code = mScoringEngine.nextCode(code);
+            for (int i = 0; i < mNbGuessesApplied; i++) {
+                if (mScoringEngine.score(mGuesses[i], candidate) != mScores[i]) {
+                    continue codes;
+                }
+            }
+            mSample[mNbSampled++] = candidate;
+        }
+        mNextCode = code;
+    }
+
+    /**
+     * @return the position in the sample of the best guess.
+     */
+    private int evaluate() {
+        final int[] partitionSizes = mPartitionSizes;
+        final boolean minimax = mStrategy == Strategy.MINIMAX;
+        int best = 0;
+        double bestCost = Double.MAX_VALUE;
+        guesses: for (int i = 0; i < mNbSampled; i++) {
+            if ((i & EVALUATE_CANCELLATION_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Interrupted while computing the next guess");
+            }
+            final long guess = mSample[i];
+            Arrays.fill(partitionSizes, 0);
+            for (int j = 0; j < mNbSampled; j++) {
+                final int partitionSize = ++partitionSizes[mScoringEngine.score(guess, mSample[j])];
+                if (minimax && partitionSize >= bestCost) {
+                    // can't be better than the best one so far
+                    continue guesses;
+                }
+            }
+            final double cost = mStrategy.getCost(partitionSizes, mNbSampled);
+            if (cost < bestCost) {
+                best = i;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.solver;
+
+import java.util.concurrent.CancellationException;
+
+import org.jraf.android.colorsecret.model.Game;
+
+/**
+ * A computer player.
+ * <p>
+ * Computing a guess can take a while: if the calling thread is interrupted, the computation stops and throws a
+ * {@link CancellationException}, and the solver can still be used for the next calls.
+ */
+public interface Solver {
+    /**
+     * Computes the next guess to play, given the guesses already validated in the given game (see {@link Game#getCurrentGuess()}).
+     *
+     * @return the packed code (see {@link org.jraf.android.colorsecret.model.ScoringEngine}) to put on the current row of the given
+     *         game, with {@link Game#setGuessCode(int, long)}.
+     * @throws CancellationException
+     *             if the calling thread was interrupted.
+     */
+    long nextGuess(Game game);
+}
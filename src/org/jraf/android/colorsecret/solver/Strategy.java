@@ -0,0 +1,103 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.solver;
+
+/**
+ * How a {@link StrategySolver} rates a guess, given how it would split the remaining candidates into groups of codes giving the same
+ * score.
+ */
+public enum Strategy {
+    /**
+     * Minimizes the size of the largest group (Knuth).
+     */
+    MINIMAX {
+        @Override
+        double getCost(final int[] partitionSizes, final int nbCandidates) {
+            int res = 0;
+            for (final int partitionSize : partitionSizes) {
+                if (partitionSize > res) {
+                    res = partitionSize;
+                }
+            }
+            return res;
+        }
+    },
+
+    /**
+     * Minimizes the expected size of the group the secret will be in.
+     */
+    EXPECTED_SIZE {
+        @Override
+        double getCost(final int[] partitionSizes, final int nbCandidates) {
+            long sumOfSquares = 0;
+            for (final int partitionSize : partitionSizes) {
+                sumOfSquares += partitionSize * partitionSize;
+            }
+            return (double) sumOfSquares / nbCandidates;
+        }
+    },
+
+    /**
+     * Maximizes the entropy of the score.
+     */
+    ENTROPY {
+        @Override
+        double getCost(final int[] partitionSizes, final int nbCandidates) {
+            double entropy = 0;
+            for (final int partitionSize : partitionSizes) {
+                if (partitionSize != 0) {
+                    final double p = (double) partitionSize / nbCandidates;
+                    entropy -= p * Math.log(p);
+                }
+            }
+            return -entropy;
+        }
+    },
+
+    /**
+     * Maximizes the number of groups.
+     */
+    MOST_PARTS {
+        @Override
+        double getCost(final int[] partitionSizes, final int nbCandidates) {
+            int nbParts = 0;
+            for (final int partitionSize : partitionSizes) {
+                if (partitionSize != 0) {
+                    nbParts++;
+                }
+            }
+            return -nbParts;
+        }
+    };
+
+    /**
+     * @param partitionSizes
+     *            the number of candidates giving each score, indexed by packed score.
+     * @param nbCandidates
+     *            the total number of candidates.
+     * @return the cost of the guess. The lower, the better.
+     */
+    abstract double getCost(int[] partitionSizes, int nbCandidates);
+}
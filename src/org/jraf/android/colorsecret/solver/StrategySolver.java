@@ -0,0 +1,246 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jraf.android.colorsecret.model.Board;
+import org.jraf.android.colorsecret.model.FeedbackTable;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.ScoringEngine;
+
+/**
+ * A solver playing the code with the lowest cost according to a {@link Strategy}, preferring codes that could be the secret, then the
+ * lowest code index.
+ * <p>
+ * The remaining candidates are kept between calls: when asked for the next guess of the same game, only the rows validated since the
+ * previous call are used to shrink them. For this reason, a solver must not be used by several threads at the same time.<br/>
+ * If an {@link ExecutorService} is given, the evaluation of all the possible guesses is split across it.
+ */
+public class StrategySolver implements Solver {
+    /**
+     * The interruption of the thread is checked every 64 guesses evaluated.
+     */
+    private static final int CANCELLATION_CHECK_MASK = 63;
+
+    private final FeedbackTable mFeedbackTable;
+    private final ScoringEngine mScoringEngine;
+    private final Strategy mStrategy;
+    private final ExecutorService mExecutorService;
+    private final int mNbChunks;
+    private final int mNbScores;
+
+    private final CandidateSet mCandidates;
+    private boolean mConsistentOnly;
+    private Game mGame;
+    private int mNbGuessesApplied;
+
+    /**
+     * Creates a single-threaded solver.
+     */
+    public StrategySolver(final FeedbackTable feedbackTable, final Strategy strategy) {
+        this(feedbackTable, strategy, null, 1);
+    }
+
+    /**
+     * @param executorService
+     *            the executor to split the evaluation of the guesses across, or {@code null} to evaluate them in the calling thread.
+     * @param nbThreads
+     *            number of threads of the given executor.
+     */
+    public StrategySolver(final FeedbackTable feedbackTable, final Strategy strategy, final ExecutorService executorService,
+            final int nbThreads) {
+        mFeedbackTable = feedbackTable;
+        mScoringEngine = feedbackTable.getScoringEngine();
+        mStrategy = strategy;
+        mExecutorService = executorService;
+        // a few more chunks than threads so that the threads finishing early can help the others
+        mNbChunks = executorService == null ? 1 : nbThreads * 4;
+        mNbScores = mScoringEngine.getNbScores();
+        mCandidates = new CandidateSet(feedbackTable);
+    }
+
+    public Strategy getStrategy() {
+        return mStrategy;
+    }
+
+    /**
+     * @param consistentOnly
+     *            {@code true} to only play codes that can be the secret, as required in hard mode (see
+     *            {@link Game#setHardMode(boolean)}). Usually takes more guesses, but is faster to compute.
+     */
+    public void setConsistentOnly(final boolean consistentOnly) {
+        mConsistentOnly = consistentOnly;
+    }
+
+    public long nextGuess(final Game game) {
+        updateCandidates(game);
+        return mScoringEngine.codeAt(nextGuessIndex());
+    }
+
+    /**
+     * @return the number of codes that can still be the secret of the game given to the last call to {@link #nextGuess(Game)}.
+     */
+    public int getNbCandidates() {
+        return mCandidates.size();
+    }
+
+    /**
+     * Shrinks the candidates with the rows validated since the last call, or starts over if this is not the same game.
+     */
+    private void updateCandidates(final Game game) {
+        final int nbGuesses = game.getCurrentGuess();
+        if (game != mGame || nbGuesses < mNbGuessesApplied) {
+            if (game.getNbHoles() != mScoringEngine.getNbHoles() || game.getNbColors() != mScoringEngine.getNbColors()) {
+                throw new IllegalArgumentException("The feedback table of this solver was not built for this game");
+            }
+            mGame = game;
+            mNbGuessesApplied = 0;
+            mCandidates.reset();
+        }
+        if (mNbGuessesApplied == nbGuesses) {
+            return;
+        }
+        final Board board = game.getBoard();
+        for (int i = mNbGuessesApplied; i < nbGuesses; i++) {
+            final int guess = (int) mScoringEngine.indexOf(board.getCode(i));
+            mCandidates.retain(guess, board.getScore(i));
+        }
+        mNbGuessesApplied = nbGuesses;
+        if (mCandidates.size() == 0) {
+            throw new IllegalStateException("No code is consistent with the hints of this game");
+        }
+    }
+
+    /**
+     * @return the code index of the code to play next.
+     */
+    private int nextGuessIndex() {
+        if (mCandidates.size() == 1) {
+            return mCandidates.get(0);
+        }
+        // positions in the candidates, or code indices
+        final int size = mConsistentOnly ? mCandidates.size() : mFeedbackTable.getSize();
+        if (mNbChunks == 1) {
+            return evaluate(0, size).mGuess;
+        }
+
+        final List<Future<Choice>> futures = new ArrayList<Future<Choice>>(mNbChunks);
+        for (int chunk = 0; chunk < mNbChunks; chunk++) {
+            final int fromGuess = (int) ((long) size * chunk / mNbChunks);
+            final int toGuess = (int) ((long) size * (chunk + 1) / mNbChunks);
+            futures.add(mExecutorService.submit(new Callable<Choice>() {
+                public Choice call() {
+                    return evaluate(fromGuess, toGuess);
+                }
+            }));
+        }
+        Choice best = null;
+        try {
+            // chunks are merged in order, so the result is the same as the single-threaded one
+            for (final Future<Choice> future : futures) {
+                final Choice choice = future.get();
+                if (best == null || choice.isBetterThan(best)) {
+                    best = choice;
+                }
+            }
+        } catch (final InterruptedException e) {
+            for (final Future<Choice> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while computing the next guess");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                throw (CancellationException) e.getCause();
+            }
+            throw new IllegalStateException("Could not compute the next guess", e.getCause());
+        }
+        return best.mGuess;
+    }
+
+    /**
+     * Evaluates the guesses between the given code indices, or between the given positions in the candidates if only consistent codes
+     * are played. Either way the guesses are evaluated in code index order.
+     *
+     * @return the best of them.
+     */
+    private Choice evaluate(final int fromGuess, final int toGuess) {
+        final int[] candidates = mCandidates.array();
+        final int nbCandidates = mCandidates.size();
+        final boolean minimax = mStrategy == Strategy.MINIMAX;
+        final int[] partitionSizes = new int[mNbScores];
+        final Choice best = new Choice();
+        best.mCost = Double.MAX_VALUE;
+        guesses: for (int position = fromGuess; position < toGuess; position++) {
+            if ((position & CANCELLATION_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Interrupted while computing the next guess");
+            }
+            final int guess = mConsistentOnly ? candidates[position] : position;
+            Arrays.fill(partitionSizes, 0);
+            for (int i = 0; i < nbCandidates; i++) {
+                final int partitionSize = ++partitionSizes[mFeedbackTable.score(guess, candidates[i])];
+                if (minimax && partitionSize > best.mCost) {
+                    // can't be better than the best one so far
+                    continue guesses;
+                }
+            }
+            final double cost = mStrategy.getCost(partitionSizes, nbCandidates);
+            final boolean consistent = mCandidates.contains(guess);
+            if (cost < best.mCost || cost == best.mCost && consistent && !best.mConsistent) {
+                best.mGuess = guess;
+                best.mCost = cost;
+                best.mConsistent = consistent;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The best guess of a range of guesses.
+     */
+    private static class Choice {
+        int mGuess;
+        double mCost;
+        boolean mConsistent;
+
+        /**
+         * Must be called on the choice of the range with the higher indices.
+         */
+        boolean isBetterThan(final Choice other) {
+            if (mCost != other.mCost) {
+                return mCost < other.mCost;
+            }
+            return mConsistent && !other.mConsistent;
+        }
+    }
+}
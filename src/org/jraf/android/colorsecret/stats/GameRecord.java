@@ -0,0 +1,91 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.stats;
+
+/**
+ * The outcome of a finished game, as stored by {@link StatsStore}.
+ */
+public class GameRecord {
+    private final long mEndTime;
+    private final int mDurationMs;
+    private final boolean mWon;
+    private final int mNbGuesses;
+    private final int mScore;
+    private final int mNbHoles;
+    private final int mNbRows;
+    private final int mNbColors;
+
+    /**
+     * @param endTime
+     *            when the game ended, in milliseconds since the epoch.
+     * @param durationMs
+     *            how long the game lasted.
+     * @param nbGuesses
+     *            number of validated guesses.
+     */
+    public GameRecord(final long endTime, final int durationMs, final boolean won, final int nbGuesses, final int score,
+            final int nbHoles, final int nbRows, final int nbColors) {
+        mEndTime = endTime;
+        mDurationMs = durationMs;
+        mWon = won;
+        mNbGuesses = nbGuesses;
+        mScore = score;
+        mNbHoles = nbHoles;
+        mNbRows = nbRows;
+        mNbColors = nbColors;
+    }
+
+    public long getEndTime() {
+        return mEndTime;
+    }
+
+    public int getDurationMs() {
+        return mDurationMs;
+    }
+
+    public boolean isWon() {
+        return mWon;
+    }
+
+    public int getNbGuesses() {
+        return mNbGuesses;
+    }
+
+    public int getScore() {
+        return mScore;
+    }
+
+    public int getNbHoles() {
+        return mNbHoles;
+    }
+
+    public int getNbRows() {
+        return mNbRows;
+    }
+
+    public int getNbColors() {
+        return mNbColors;
+    }
+}
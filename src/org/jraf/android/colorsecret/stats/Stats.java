@@ -0,0 +1,106 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.stats;
+
+/**
+ * Running aggregates over a set of finished games.
+ */
+public class Stats {
+    private int mNbGames;
+    private int mNbWon;
+    private long mTotalScore;
+    /**
+     * The games recorded one by one, which are the only ones with a number of guesses and a duration.
+     */
+    private int mNbDetailedGames;
+    private long mTotalGuesses;
+    private long mTotalDurationMs;
+
+    Stats() {}
+
+    Stats(final Stats stats) {
+        add(stats);
+    }
+
+    /**
+     * Totals without details, such as the ones kept before the games were recorded one by one.
+     */
+    Stats(final int nbGames, final int nbWon, final long totalScore) {
+        mNbGames = nbGames;
+        mNbWon = nbWon;
+        mTotalScore = totalScore;
+    }
+
+    void add(final GameRecord gameRecord) {
+        mNbGames++;
+        if (gameRecord.isWon()) mNbWon++;
+        mTotalScore += gameRecord.getScore();
+        mNbDetailedGames++;
+        mTotalGuesses += gameRecord.getNbGuesses();
+        mTotalDurationMs += gameRecord.getDurationMs();
+    }
+
+    void add(final Stats stats) {
+        mNbGames += stats.mNbGames;
+        mNbWon += stats.mNbWon;
+        mTotalScore += stats.mTotalScore;
+        mNbDetailedGames += stats.mNbDetailedGames;
+        mTotalGuesses += stats.mTotalGuesses;
+        mTotalDurationMs += stats.mTotalDurationMs;
+    }
+
+    public int getNbGames() {
+        return mNbGames;
+    }
+
+    public int getNbWon() {
+        return mNbWon;
+    }
+
+    public long getTotalScore() {
+        return mTotalScore;
+    }
+
+    /**
+     * @return the ratio of won games, between 0 and 1, or 0 if there is no game.
+     */
+    public float getWinRate() {
+        return mNbGames == 0 ? 0 : (float) mNbWon / mNbGames;
+    }
+
+    /**
+     * @return the average number of guesses per game, or 0 if there is no game. The games without details are not counted.
+     */
+    public float getAverageNbGuesses() {
+        return mNbDetailedGames == 0 ? 0 : (float) mTotalGuesses / mNbDetailedGames;
+    }
+
+    /**
+     * @return the average duration of a game, or 0 if there is no game. The games without details are not counted.
+     */
+    public long getAverageDurationMs() {
+        return mNbDetailedGames == 0 ? 0 : mTotalDurationMs / mNbDetailedGames;
+    }
+}
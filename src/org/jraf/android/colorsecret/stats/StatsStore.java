@@ -0,0 +1,240 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.stats;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import android.util.Log;
+
+import org.jraf.android.colorsecret.Constants;
+
+/**
+ * Keeps the statistics of the finished games: each game is appended to a log file as a fixed size record, and the aggregates are kept in
+ * memory, globally and per board size.
+ * <p>
+ * The file is only accessed from the given executor, so the methods of this class can be called from the UI thread. The aggregates are
+ * complete once {@link #load(Runnable)} is done: the games added before that are counted anyway.
+ * <p>
+ * A record which could not be completely written, for instance because the app was killed, is dropped at the next load.
+ */
+public class StatsStore {
+    private static final String TAG = Constants.TAG + StatsStore.class.getSimpleName();
+
+    private static final int FILE_MAGIC = 0x43535354; // "CSST"
+    private static final int FILE_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 20;
+
+    private static final int FLAG_WON = 1;
+
+    private final File mFile;
+    private final Executor mExecutor;
+
+    /*
+     * Guarded by this.
+     */
+    private final Stats mTotalStats = new Stats();
+    private final Map<Integer, Stats> mBoardStats = new HashMap<Integer, Stats>();
+    private boolean mLoaded;
+
+    /**
+     * @param executor
+     *            the executor to access the file from. It must run its tasks one at a time, in the order they are given.
+     */
+    public StatsStore(final File file, final Executor executor) {
+        mFile = file;
+        mExecutor = executor;
+    }
+
+    /**
+     * Reads the games of the file, in the background.
+     *
+     * @param onLoaded
+     *            run from the executor once the games are read, can be {@code null}.
+     */
+    public void load(final Runnable onLoaded) {
+        mExecutor.execute(new Runnable() {
+            public void run() {
+                try {
+                    readFile();
+                } catch (final IOException e) {
+                    // the games of the file are lost, the new ones are still recorded
+                    if (Constants.LOGD) Log.w(TAG, "Could not read " + mFile, e);
+                }
+                synchronized (StatsStore.this) {
+                    mLoaded = true;
+                }
+                if (onLoaded != null) onLoaded.run();
+            }
+        });
+    }
+
+    public synchronized boolean isLoaded() {
+        return mLoaded;
+    }
+
+    /**
+     * Counts the given totals in the global statistics, without recording them in the file. Used for the totals kept before this store
+     * existed.
+     */
+    public synchronized void addBaseline(final int nbGames, final int nbWon, final long totalScore) {
+        mTotalStats.add(new Stats(nbGames, nbWon, totalScore));
+    }
+
+    /**
+     * Counts the given game right away, and appends it to the file in the background.
+     */
+    public void addGame(final GameRecord gameRecord) {
+        synchronized (this) {
+            addToStats(gameRecord);
+        }
+        mExecutor.execute(new Runnable() {
+            public void run() {
+                try {
+                    append(gameRecord);
+                } catch (final IOException e) {
+                    if (Constants.LOGD) Log.w(TAG, "Could not write to " + mFile, e);
+                }
+            }
+        });
+    }
+
+    private void addToStats(final GameRecord gameRecord) {
+        mTotalStats.add(gameRecord);
+        final Integer key = getBoardKey(gameRecord.getNbHoles(), gameRecord.getNbRows(), gameRecord.getNbColors());
+        Stats boardStats = mBoardStats.get(key);
+        if (boardStats == null) {
+            boardStats = new Stats();
+            mBoardStats.put(key, boardStats);
+        }
+        boardStats.add(gameRecord);
+    }
+
+    private static Integer getBoardKey(final int nbHoles, final int nbRows, final int nbColors) {
+        return (nbHoles << 16) | (nbRows << 8) | nbColors;
+    }
+
+
+    /*
+     * Queries.
+     */
+
+    /**
+     * @return a copy of the statistics of all the games.
+     */
+    public synchronized Stats getTotalStats() {
+        return new Stats(mTotalStats);
+    }
+
+    /**
+     * @return a copy of the statistics of the games played on the given board size.
+     */
+    public synchronized Stats getBoardStats(final int nbHoles, final int nbRows, final int nbColors) {
+        final Stats boardStats = mBoardStats.get(getBoardKey(nbHoles, nbRows, nbColors));
+        return boardStats == null ? new Stats() : new Stats(boardStats);
+    }
+
+
+    /*
+     * File.
+     */
+
+    private void readFile() throws IOException {
+        if (!mFile.exists()) return;
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "rw");
+        try {
+            final long length = randomAccessFile.length();
+            if (length < FILE_HEADER_SIZE) {
+                // the header itself was not completely written
+                randomAccessFile.setLength(0);
+                return;
+            }
+            final int nbRecords = (int) ((length - FILE_HEADER_SIZE) / RECORD_SIZE);
+            final byte[] data = new byte[FILE_HEADER_SIZE + nbRecords * RECORD_SIZE];
+            randomAccessFile.readFully(data);
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+            if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+                // start over rather than appending to a file that cannot be read
+                randomAccessFile.setLength(0);
+                throw new IOException(mFile + " is not a stats file, it has been emptied");
+            }
+            if (data.length != length) {
+                // drop the incomplete last record, so that the next ones are aligned
+                randomAccessFile.setLength(data.length);
+            }
+            synchronized (this) {
+                for (int i = 0; i < nbRecords; i++) {
+                    addToStats(readRecord(buffer));
+                }
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static GameRecord readRecord(final ByteBuffer buffer) {
+        final long endTime = buffer.getLong();
+        final int durationMs = buffer.getInt();
+        final int score = buffer.getShort() & 0xFFFF;
+        final int nbHoles = buffer.get() & 0xFF;
+        final int nbRows = buffer.get() & 0xFF;
+        final int nbColors = buffer.get() & 0xFF;
+        final int nbGuesses = buffer.get() & 0xFF;
+        final int flags = buffer.get() & 0xFF;
+        buffer.get(); // reserved
+        return new GameRecord(endTime, durationMs, (flags & FLAG_WON) != 0, nbGuesses, score, nbHoles, nbRows, nbColors);
+    }
+
+    private void append(final GameRecord gameRecord) throws IOException {
+        final boolean newFile = !mFile.exists() || mFile.length() == 0;
+        final ByteBuffer buffer = ByteBuffer.allocate((newFile ? FILE_HEADER_SIZE : 0) + RECORD_SIZE);
+        if (newFile) {
+            buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION);
+        }
+        buffer.putLong(gameRecord.getEndTime());
+        buffer.putInt(gameRecord.getDurationMs());
+        buffer.putShort((short) Math.min(gameRecord.getScore(), 0xFFFF));
+        buffer.put((byte) gameRecord.getNbHoles());
+        buffer.put((byte) gameRecord.getNbRows());
+        buffer.put((byte) gameRecord.getNbColors());
+        buffer.put((byte) gameRecord.getNbGuesses());
+        buffer.put((byte) (gameRecord.isWon() ? FLAG_WON : 0));
+        buffer.put((byte) 0); // reserved
+
+        final FileOutputStream outputStream = new FileOutputStream(mFile, true);
+        try {
+            outputStream.write(buffer.array());
+        } finally {
+            outputStream.close();
+        }
+    }
+}
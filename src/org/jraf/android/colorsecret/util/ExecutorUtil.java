@@ -0,0 +1,98 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+/**
+ * Where the app runs its work outside of the current call:
+ * <ul>
+ * <li>heavy model work (solvers, hints) on a single app-wide background thread, so tasks run one at a time in the order they are
+ * given;</li>
+ * <li>timed feedback effects (sequences of sounds) on the UI thread, so that they are not delayed by the model work and can all be
+ * cancelled at once, for instance when a new game starts.</li>
+ * </ul>
+ */
+public class ExecutorUtil {
+    private static final String BACKGROUND_THREAD_NAME = "ColorSecret-background";
+
+    /**
+     * Identifies the effects in the queue of the UI thread.
+     */
+    private static final Object EFFECTS_TOKEN = new Object();
+
+    private static ScheduledExecutorService sBackgroundExecutor;
+    private static Handler sEffectsHandler;
+
+    /**
+     * @return the app-wide background executor. It has a single thread, which must never be shut down.
+     */
+    public static synchronized ScheduledExecutorService getBackgroundExecutor() {
+        if (sBackgroundExecutor == null) {
+            sBackgroundExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    final Thread res = new Thread(new Runnable() {
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, BACKGROUND_THREAD_NAME);
+                    // never keep the process alive
+                    res.setDaemon(true);
+                    return res;
+                }
+            });
+        }
+        return sBackgroundExecutor;
+    }
+
+    /**
+     * Runs the given effect on the UI thread after the given delay, unless {@link #cancelEffects()} is called before. Must be called from
+     * the UI thread.
+     */
+    public static void scheduleEffect(final Runnable effect, final long delayMs) {
+        if (sEffectsHandler == null) {
+            sEffectsHandler = new Handler(Looper.getMainLooper());
+        }
+        sEffectsHandler.postAtTime(effect, EFFECTS_TOKEN, SystemClock.uptimeMillis() + delayMs);
+    }
+
+    /**
+     * Cancels all the effects scheduled with {@link #scheduleEffect(Runnable, long)} that have not run yet. Must be called from the UI
+     * thread.
+     */
+    public static void cancelEffects() {
+        if (sEffectsHandler != null) {
+            sEffectsHandler.removeCallbacksAndMessages(EFFECTS_TOKEN);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.Instrumentation;
+
+public class InstrumentationUtil {
+    private static final String TAG = Constants.TAG + InstrumentationUtil.class.getSimpleName();
+
+    public static final String FILE_NAME = "instrumentation.txt";
+
+    /**
+     * Sends the values of the probes (see {@link Instrumentation}) to the log, and writes them to {@link #FILE_NAME} in the files directory
+     * of the app, in the background. Does nothing if the instrumentation is disabled.
+     */
+    public static void dump(final Context context) {
+        if (!Instrumentation.isEnabled()) return;
+        final StringWriter stringWriter = new StringWriter();
+        Instrumentation.dump(new PrintWriter(stringWriter));
+        final String dump = stringWriter.toString();
+        for (final String line : dump.split("\n")) {
+            Log.d(TAG, line);
+        }
+
+        final File file = new File(context.getFilesDir(), FILE_NAME);
+        ExecutorUtil.getBackgroundExecutor().execute(new Runnable() {
+            public void run() {
+                try {
+                    final FileOutputStream outputStream = new FileOutputStream(file);
+                    try {
+                        outputStream.write(dump.getBytes("UTF-8"));
+                    } finally {
+                        outputStream.close();
+                    }
+                } catch (final IOException e) {
+                    Log.w(TAG, "Could not write " + file, e);
+                }
+            }
+        });
+    }
+}
@@ -26,15 +26,22 @@ package org.jraf.android.colorsecret.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 
 public class IoUtil {
 
-    public static final String inputStreamToString(final InputStream in) throws IOException {
-        final StringBuilder stringBuilder = new StringBuilder();
-        final byte[] buffer = new byte[4096];
+    /**
+     * Reads the given stream to the end and decodes it with the given charset. The stream is not closed.
+     */
+    public static final String inputStreamToString(final InputStream in, final String charsetName) throws IOException {
+        // available() is only a hint, but for resources it is usually the whole size
+        final StringBuilder stringBuilder = new StringBuilder(Math.max(in.available(), 16));
+        final Reader reader = new InputStreamReader(in, charsetName);
+        final char[] buffer = new char[4096];
         int read;
-        while ((read = in.read(buffer)) != -1) {
-            stringBuilder.append(new String(buffer, 0, read, "ISO-8859-1"));
+        while ((read = reader.read(buffer)) != -1) {
+            stringBuilder.append(buffer, 0, read);
         }
         return stringBuilder.toString();
     }
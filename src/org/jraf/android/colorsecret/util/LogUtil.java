@@ -0,0 +1,48 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.util;
+
+import android.util.Log;
+
+import org.jraf.android.colorsecret.model.ModelLog;
+
+public class LogUtil {
+    private static final ModelLog.Logger ANDROID_LOGGER = new ModelLog.Logger() {
+        public void d(final String tag, final String message) {
+            Log.d(tag, message);
+        }
+
+        public void w(final String tag, final String message, final Throwable throwable) {
+            Log.w(tag, message, throwable);
+        }
+    };
+
+    /**
+     * Sends the logs of the model to {@link Log}.
+     */
+    public static void installModelLogger() {
+        ModelLog.setLogger(ANDROID_LOGGER);
+    }
+}
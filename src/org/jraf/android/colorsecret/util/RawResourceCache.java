@@ -0,0 +1,97 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+/**
+ * Text raw resources (such as the help page), decoded as UTF-8 once and kept in memory.
+ * <p>
+ * A resource can be loaded ahead of time on the background executor with {@link #preload(Context, int, Runnable)}, so that the UI thread
+ * finds it decoded when it needs it.
+ */
+public class RawResourceCache {
+    private static final String CHARSET = "UTF-8";
+
+    /**
+     * Guarded by the class.
+     */
+    private static final SparseArray<String> sStrings = new SparseArray<String>();
+    private static Handler sMainHandler;
+
+    /**
+     * @return the contents of the given raw resource, decoding it now if it was not already.
+     */
+    public static String getString(final Context context, final int resId) {
+        synchronized (RawResourceCache.class) {
+            final String res = sStrings.get(resId);
+            if (res != null) return res;
+        }
+        // decode outside of the lock: at worst the resource is decoded twice
+        final String res;
+        try {
+            final InputStream inputStream = context.getResources().openRawResource(resId);
+            try {
+                res = IoUtil.inputStreamToString(inputStream, CHARSET);
+            } finally {
+                inputStream.close();
+            }
+        } catch (final IOException e) {
+            // should never happen: the resources are part of the apk
+            throw new AssertionError("Could not read raw resource " + resId);
+        }
+        synchronized (RawResourceCache.class) {
+            sStrings.put(resId, res);
+        }
+        return res;
+    }
+
+    /**
+     * Decodes the given raw resource on the background executor, if it was not already.
+     *
+     * @param onLoaded
+     *            run on the UI thread once the resource is decoded, can be {@code null}.
+     */
+    public static void preload(final Context context, final int resId, final Runnable onLoaded) {
+        final Context applicationContext = context.getApplicationContext();
+        synchronized (RawResourceCache.class) {
+            if (sMainHandler == null) {
+                sMainHandler = new Handler(Looper.getMainLooper());
+            }
+        }
+        ExecutorUtil.getBackgroundExecutor().execute(new Runnable() {
+            public void run() {
+                getString(applicationContext, resId);
+                if (onLoaded != null) sMainHandler.post(onLoaded);
+            }
+        });
+    }
+}
@@ -24,37 +24,122 @@
  */
 package org.jraf.android.colorsecret.util;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import android.content.Context;
 import android.media.AudioManager;
 import android.media.SoundPool;
+import android.os.SystemClock;
+import android.util.Log;
 
+import org.jraf.android.colorsecret.Constants;
+import org.jraf.android.colorsecret.model.Instrumentation;
 import org.jraf.android.colorsecret.R;
 
+/**
+ * Plays the sounds of the game.
+ * <p>
+ * The sounds are loaded in the background by {@link #warmUp(Context)}, typically at application start. A sound played before its load
+ * is requested is skipped rather than making the caller wait. {@link SoundPool} decodes the sounds asynchronously even after that, and
+ * silently drops a sound played before it is decoded (there is no way to be notified of the end of the decoding before API 8).
+ */
 public class SoundUtil {
+    private static final String TAG = Constants.TAG + SoundUtil.class.getSimpleName();
 
     private static final int[] SOUNDS = { R.raw.detect0, R.raw.drop0, R.raw.lost0, R.raw.lost1, R.raw.lost2, R.raw.newgame0, R.raw.nohint0,
             R.raw.pick0, R.raw.redhint0, R.raw.whitehint0, R.raw.win0, };
-    private static SoundPool sSoundPool;
-    private static boolean sInit;
-    private static Map<Integer, Integer> sSoundIdMap;
+
+    /**
+     * The index in {@link #SOUNDS} of each sound, indexed by resource id minus {@link #MIN_SOUND_ID}. Resource ids of the same type are
+     * allocated contiguously, so this table is small.
+     */
+    private static final int[] SOUND_INDEXES;
+    private static final int MIN_SOUND_ID;
+
+    static {
+        int minResId = Integer.MAX_VALUE;
+        int maxResId = Integer.MIN_VALUE;
+        for (final int resId : SOUNDS) {
+            minResId = Math.min(minResId, resId);
+            maxResId = Math.max(maxResId, resId);
+        }
+        MIN_SOUND_ID = minResId;
+        SOUND_INDEXES = new int[maxResId - minResId + 1];
+        for (int i = 0; i < SOUND_INDEXES.length; i++) {
+            SOUND_INDEXES[i] = -1;
+        }
+        for (int i = 0; i < SOUNDS.length; i++) {
+            SOUND_INDEXES[SOUNDS[i] - minResId] = i;
+        }
+    }
+
+    private static final Instrumentation.Probe PLAY_PROBE = Instrumentation.newProbe("SoundUtil.play");
+    private static final Instrumentation.Probe NOT_READY_PROBE = Instrumentation.newProbe("SoundUtil.play (not ready)");
+
+    private static volatile SoundPool sSoundPool;
+    /**
+     * The sound pool id of each sound, indexed like {@link #SOUNDS}. 0 until its load is requested.
+     */
+    private static final AtomicIntegerArray sSoundPoolIds = new AtomicIntegerArray(SOUNDS.length);
+    private static boolean sWarmUpStarted;
     private static boolean sEnabled;
 
-    private static void init(final Context context) {
-        sSoundPool = new SoundPool(4, AudioManager.STREAM_MUSIC, 0);
-        sSoundIdMap = new HashMap<Integer, Integer>(SOUNDS.length);
-        for (final int soundId : SOUNDS) {
-            sSoundIdMap.put(soundId, sSoundPool.load(context, soundId, 1));
+    /**
+     * Starts loading the sounds on the background executor (see {@link ExecutorUtil#getBackgroundExecutor()}), if it is not already done.
+     */
+    public static synchronized void warmUp(final Context context) {
+        if (sWarmUpStarted) return;
+        sWarmUpStarted = true;
+        final Context applicationContext = context.getApplicationContext();
+        ExecutorUtil.getBackgroundExecutor().execute(new Runnable() {
+            public void run() {
+                final long start = SystemClock.uptimeMillis();
+                final SoundPool soundPool = new SoundPool(4, AudioManager.STREAM_MUSIC, 0);
+                sSoundPool = soundPool;
+                for (int i = 0; i < SOUNDS.length; i++) {
+                    sSoundPoolIds.set(i, soundPool.load(applicationContext, SOUNDS[i], 1));
+                }
+                if (Constants.LOGD) Log.d(TAG, "Sounds load requested in " + (SystemClock.uptimeMillis() - start) + " ms");
+            }
+        });
+    }
+
+    /**
+     * @return {@code true} if the load of all the sounds has been requested. They may still be decoding, see {@link SoundUtil}.
+     */
+    public static boolean isReady() {
+        for (int i = 0; i < SOUNDS.length; i++) {
+            if (sSoundPoolIds.get(i) == 0) return false;
         }
-        sInit = true;
+        return true;
     }
 
     public static void play(final Context context, final int soundId) {
         if (!sEnabled) return;
-        if (!sInit) init(context);
-        sSoundPool.play(sSoundIdMap.get(soundId), 1.0f, 1.0f, 1, 0, 1.0f);
+        final SoundPool soundPool = sSoundPool;
+        if (soundPool == null) {
+            // sounds were disabled at start
+            warmUp(context);
+            NOT_READY_PROBE.increment();
+            return;
+        }
+        final int soundPoolId = sSoundPoolIds.get(getSoundIndex(soundId));
+        if (soundPoolId == 0) {
+            NOT_READY_PROBE.increment();
+            return;
+        }
+        final long start = Instrumentation.start();
+        soundPool.play(soundPoolId, 1.0f, 1.0f, 1, 0, 1.0f);
+        PLAY_PROBE.stop(start);
+    }
+
+    private static int getSoundIndex(final int soundId) {
+        final int offset = soundId - MIN_SOUND_ID;
+        final int res = offset < 0 || offset >= SOUND_INDEXES.length ? -1 : SOUND_INDEXES[offset];
+        if (res == -1) {
+            throw new IllegalArgumentException("Unknown sound: " + soundId);
+        }
+        return res;
     }
 
     public static void setEnabled(final boolean soundEnabled) {
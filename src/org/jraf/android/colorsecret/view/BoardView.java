@@ -0,0 +1,422 @@
+/*
+ * This source is part of the
+ *      _____  ___   ____
+ *  __ / / _ \/ _ | / __/___  _______ _
+ * / // / , _/ __ |/ _/_/ _ \/ __/ _ `/
+ * \___/_/|_/_/ |_/_/ (_)___/_/  \_, /
+ *                              /___/
+ * repository.
+ *
+ * Copyright 2011 Benoit 'BoD' Lubek (BoD@JRAF.org).  All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jraf.android.colorsecret.view;
+
+import java.util.List;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.jraf.android.colorsecret.model.Board;
+import org.jraf.android.colorsecret.model.CodePeg;
+import org.jraf.android.colorsecret.model.Game;
+import org.jraf.android.colorsecret.model.HintPeg;
+import org.jraf.android.colorsecret.util.PegUtil;
+import org.jraf.android.colorsecret.R;
+
+/**
+ * Draws all the rows of a game on a single view, straight from the model, instead of one view per peg.
+ * <p>
+ * The pegs are drawn from bitmaps rendered once from their drawables. Only the rows intersecting the clip bounds are drawn, so a change to
+ * a row should be followed by {@link #invalidateRow(int)} rather than {@link #invalidate()}.
+ */
+public class BoardView extends View {
+    public static interface OnBoardClickListener {
+        void onHoleClick(int rowIndex, int holeIndex);
+
+        void onOkClick(int rowIndex);
+    }
+
+    private static final int[] STATE_ENABLED = { android.R.attr.state_enabled };
+    private static final int[] STATE_DISABLED = {};
+
+    private final int mPegMargin;
+    private final int mCodePegSize;
+    private final int mCodePegCellSize;
+    private final int mHintPegSize;
+    private final int mHintPegCellSize;
+    private final int mHintsMarginLeft;
+
+    private final Bitmap[] mCodePegBitmaps;
+    private final Bitmap mCodePegEmptyBitmap;
+    private final Bitmap[] mHintPegBitmaps;
+    private final Bitmap mHintPegEmptyBitmap;
+    private final Drawable mRowActiveDrawable;
+    private final Drawable mRowInactiveDrawable;
+    private final Drawable mRowDraggingDrawable;
+    private final Drawable mHoleDraggingDrawable;
+    private final Drawable mOkDrawable;
+    private final String mOkText;
+    private final Paint mOkTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private Game mGame;
+    private int mActiveRowIndex = -1;
+    private boolean mOkEnabled;
+    private int mDragTargetRowIndex = -1;
+    private int mDragTargetHoleIndex = -1;
+    private OnBoardClickListener mOnBoardClickListener;
+
+    /*
+     * Geometry of the current game, see updateGeometry().
+     */
+    private int mNbHintPegsPerLine;
+    private int mRowWidth;
+    private int mRowHeight;
+    private int mRowLeft;
+
+    private int mTouchedRowIndex = -1;
+    private int mTouchedHoleIndex = -1;
+
+    private final Rect mClipBounds = new Rect();
+    private final int[] mLocationOnScreen = new int[2];
+
+    public BoardView(final Context context, final AttributeSet attrs) {
+        super(context, attrs);
+        final Resources resources = context.getResources();
+        final float density = resources.getDisplayMetrics().density;
+        mPegMargin = (int) (3 * density + .5f);
+        mCodePegSize = resources.getDimensionPixelSize(R.dimen.peg_code);
+        mCodePegCellSize = mCodePegSize + 2 * mPegMargin;
+        mHintPegSize = resources.getDimensionPixelSize(R.dimen.peg_hint);
+        mHintPegCellSize = mHintPegSize + 2 * mPegMargin;
+        mHintsMarginLeft = (int) (4 * density + .5f);
+
+        final CodePeg[] codePegs = CodePeg.values();
+        mCodePegBitmaps = new Bitmap[codePegs.length];
+        for (final CodePeg codePeg : codePegs) {
+            mCodePegBitmaps[codePeg.ordinal()] = createBitmap(resources, PegUtil.getDrawable(codePeg), mCodePegSize);
+        }
+        mCodePegEmptyBitmap = createBitmap(resources, R.drawable.peg_code_empty, mCodePegSize);
+        final HintPeg[] hintPegs = HintPeg.values();
+        mHintPegBitmaps = new Bitmap[hintPegs.length];
+        for (final HintPeg hintPeg : hintPegs) {
+            mHintPegBitmaps[hintPeg.ordinal()] = createBitmap(resources, PegUtil.getDrawable(hintPeg), mHintPegSize);
+        }
+        mHintPegEmptyBitmap = createBitmap(resources, R.drawable.peg_hint_empty, mHintPegSize);
+
+        mRowActiveDrawable = resources.getDrawable(R.drawable.row_bg_active);
+        mRowInactiveDrawable = resources.getDrawable(R.drawable.row_bg_inactive);
+        mRowDraggingDrawable = resources.getDrawable(R.drawable.row_bg_dragging);
+        mHoleDraggingDrawable = resources.getDrawable(R.drawable.peg_code_bg_dragging);
+        mOkDrawable = resources.getDrawable(R.drawable.btn_bg);
+        mOkText = context.getString(android.R.string.ok);
+        mOkTextPaint.setTextAlign(Paint.Align.CENTER);
+        mOkTextPaint.setTextSize(16 * density);
+    }
+
+    private static Bitmap createBitmap(final Resources resources, final int drawableId, final int size) {
+        final Bitmap res = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        final Drawable drawable = resources.getDrawable(drawableId);
+        drawable.setBounds(0, 0, size, size);
+        drawable.draw(new Canvas(res));
+        return res;
+    }
+
+
+    /*
+     * State.
+     */
+
+    /**
+     * Shows the given game, which can be a new one or a game in progress. No row is active until {@link #setActiveRow(int)} is called.
+     */
+    public void setGame(final Game game) {
+        final boolean sameSize = mGame != null && mGame.getNbHoles() == game.getNbHoles() && mGame.getNbRows() == game.getNbRows();
+        mGame = game;
+        mActiveRowIndex = -1;
+        mOkEnabled = false;
+        mDragTargetRowIndex = -1;
+        mDragTargetHoleIndex = -1;
+        mTouchedRowIndex = -1;
+        updateGeometry();
+        if (!sameSize) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    /**
+     * @param rowIndex
+     *            the row the player is filling, or -1 if the game is over.
+     */
+    public void setActiveRow(final int rowIndex) {
+        if (rowIndex == mActiveRowIndex) return;
+        final int prevRowIndex = mActiveRowIndex;
+        mActiveRowIndex = rowIndex;
+        mOkEnabled = false;
+        invalidateRow(prevRowIndex);
+        invalidateRow(rowIndex);
+    }
+
+    public void setOkEnabled(final boolean enabled) {
+        if (enabled == mOkEnabled) return;
+        mOkEnabled = enabled;
+        invalidateRow(mActiveRowIndex);
+    }
+
+    /**
+     * Highlights the row receiving a dragged peg, and the hole it would be dropped in.
+     *
+     * @param rowIndex
+     *            the row receiving the drag, or -1 if there is no drag.
+     * @param holeIndex
+     *            the hole under the dragged peg, or -1 if there is none.
+     */
+    public void setDragTarget(final int rowIndex, final int holeIndex) {
+        if (rowIndex == mDragTargetRowIndex && holeIndex == mDragTargetHoleIndex) return;
+        final int prevRowIndex = mDragTargetRowIndex;
+        mDragTargetRowIndex = rowIndex;
+        mDragTargetHoleIndex = holeIndex;
+        invalidateRow(prevRowIndex);
+        if (rowIndex != prevRowIndex) {
+            invalidateRow(rowIndex);
+        }
+    }
+
+    /**
+     * Must be called when the pegs or the hints of the given row change in the model.
+     */
+    public void invalidateRow(final int rowIndex) {
+        if (mGame == null || rowIndex < 0 || rowIndex >= mGame.getNbRows()) return;
+        final int top = getPaddingTop() + rowIndex * mRowHeight;
+        invalidate(0, top, getWidth(), top + mRowHeight);
+    }
+
+    public void setOnBoardClickListener(final OnBoardClickListener onBoardClickListener) {
+        mOnBoardClickListener = onBoardClickListener;
+    }
+
+
+    /*
+     * Geometry.
+     */
+
+    private void updateGeometry() {
+        final int nbHoles = mGame.getNbHoles();
+        // same arrangement as the row layout: the first half of the hints on the first line, the others on the second one
+        mNbHintPegsPerLine = nbHoles - nbHoles / 2;
+        mRowWidth = nbHoles * mCodePegCellSize + mHintsMarginLeft + Math.max(mNbHintPegsPerLine * mHintPegCellSize, mCodePegCellSize);
+        mRowHeight = mCodePegCellSize;
+        updateRowLeft();
+    }
+
+    private void updateRowLeft() {
+        // rows are centered
+        mRowLeft = getPaddingLeft() + Math.max(0, (getWidth() - getPaddingLeft() - getPaddingRight() - mRowWidth) / 2);
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        if (mGame == null) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+        final int width = getPaddingLeft() + mRowWidth + getPaddingRight();
+        final int height = getPaddingTop() + mGame.getNbRows() * mRowHeight + getPaddingBottom();
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(final int w, final int h, final int oldw, final int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (mGame != null) {
+            updateRowLeft();
+        }
+    }
+
+    private int getRowTop(final int rowIndex) {
+        return getPaddingTop() + rowIndex * mRowHeight;
+    }
+
+    private int getHoleLeft(final int holeIndex) {
+        return mRowLeft + holeIndex * mCodePegCellSize;
+    }
+
+    private int getHintsLeft() {
+        return mRowLeft + mGame.getNbHoles() * mCodePegCellSize + mHintsMarginLeft;
+    }
+
+    /**
+     * @return the row at the given vertical position in this view, or -1 if there is none.
+     */
+    private int getRowIndexAt(final int y) {
+        final int offset = y - getPaddingTop();
+        if (offset < 0) return -1;
+        final int res = offset / mRowHeight;
+        return res < mGame.getNbRows() ? res : -1;
+    }
+
+    /**
+     * @return the hole at the given horizontal position in this view, or -1 if there is none.
+     */
+    private int getHoleIndexAt(final int x) {
+        final int offset = x - mRowLeft;
+        if (offset < 0) return -1;
+        final int res = offset / mCodePegCellSize;
+        return res < mGame.getNbHoles() ? res : -1;
+    }
+
+    private boolean isInOk(final int x) {
+        final int hintsLeft = getHintsLeft();
+        return x >= hintsLeft && x < mRowLeft + mRowWidth;
+    }
+
+    /**
+     * @return the hole of the active row at the given position on the screen, or -1 if there is none.
+     */
+    public int getActiveRowHoleAt(final int screenX, final int screenY) {
+        if (mGame == null || mActiveRowIndex == -1) return -1;
+        getLocationOnScreen(mLocationOnScreen);
+        if (getRowIndexAt(screenY - mLocationOnScreen[1]) != mActiveRowIndex) return -1;
+        return getHoleIndexAt(screenX - mLocationOnScreen[0]);
+    }
+
+
+    /*
+     * Drawing.
+     */
+
+    @Override
+    protected void onDraw(final Canvas canvas) {
+        if (mGame == null) return;
+        canvas.getClipBounds(mClipBounds);
+        final int firstRowIndex = Math.max(0, (mClipBounds.top - getPaddingTop()) / mRowHeight);
+        final int lastRowIndex = Math.min(mGame.getNbRows() - 1, (mClipBounds.bottom - 1 - getPaddingTop()) / mRowHeight);
+        for (int rowIndex = firstRowIndex; rowIndex <= lastRowIndex; rowIndex++) {
+            drawRow(canvas, rowIndex);
+        }
+    }
+
+    private void drawRow(final Canvas canvas, final int rowIndex) {
+        final int top = getRowTop(rowIndex);
+        final int bottom = top + mRowHeight;
+        final boolean active = rowIndex == mActiveRowIndex;
+        final int currentGuess = mGame.getCurrentGuess();
+        final boolean validated = rowIndex < currentGuess || rowIndex == currentGuess && mGame.isOver();
+
+        // background
+        final Drawable background;
+        if (rowIndex == mDragTargetRowIndex) {
+            background = mRowDraggingDrawable;
+        } else if (active) {
+            background = mRowActiveDrawable;
+        } else if (validated) {
+            background = mRowInactiveDrawable;
+        } else {
+            background = null;
+        }
+        if (background != null) {
+            background.setBounds(0, top, getWidth(), bottom);
+            background.draw(canvas);
+        }
+
+        // code pegs
+        final Board board = mGame.getBoard();
+        final int nbHoles = mGame.getNbHoles();
+        for (int holeIndex = 0; holeIndex < nbHoles; holeIndex++) {
+            final int left = getHoleLeft(holeIndex);
+            if (rowIndex == mDragTargetRowIndex && holeIndex == mDragTargetHoleIndex) {
+                mHoleDraggingDrawable.setBounds(left, top, left + mCodePegCellSize, bottom);
+                mHoleDraggingDrawable.draw(canvas);
+            }
+            final CodePeg codePeg = board.getCodePeg(rowIndex, holeIndex);
+            final Bitmap bitmap = codePeg == null ? mCodePegEmptyBitmap : mCodePegBitmaps[codePeg.ordinal()];
+            canvas.drawBitmap(bitmap, left + mPegMargin, top + mPegMargin, null);
+        }
+
+        // hints, or the OK button on the active row
+        final int hintsLeft = getHintsLeft();
+        if (active) {
+            mOkDrawable.setState(mOkEnabled ? STATE_ENABLED : STATE_DISABLED);
+            mOkDrawable.setBounds(hintsLeft, top + mPegMargin, mRowLeft + mRowWidth, bottom - mPegMargin);
+            mOkDrawable.draw(canvas);
+            final float textY = (top + bottom) / 2f - (mOkTextPaint.ascent() + mOkTextPaint.descent()) / 2f;
+            canvas.drawText(mOkText, (hintsLeft + mRowLeft + mRowWidth) / 2f, textY, mOkTextPaint);
+        } else {
+            final List<HintPeg> hintPegs = validated ? board.getHintPegs(rowIndex) : null;
+            final int nbHintPegs = hintPegs == null ? 0 : hintPegs.size();
+            final int hintsTop = top + (mRowHeight - 2 * mHintPegCellSize) / 2;
+            for (int i = 0; i < nbHoles; i++) {
+                final int line = i < nbHoles / 2 ? 0 : 1;
+                final int column = line == 0 ? i : i - nbHoles / 2;
+                final Bitmap bitmap = i < nbHintPegs ? mHintPegBitmaps[hintPegs.get(i).ordinal()] : mHintPegEmptyBitmap;
+                canvas.drawBitmap(bitmap, hintsLeft + column * mHintPegCellSize + mPegMargin, hintsTop + line * mHintPegCellSize
+                        + mPegMargin, null);
+            }
+        }
+    }
+
+
+    /*
+     * Touch.
+     */
+
+    @Override
+    public boolean onTouchEvent(final MotionEvent event) {
+        if (mGame == null || mActiveRowIndex == -1) return false;
+        final int x = (int) event.getX();
+        final int y = (int) event.getY();
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                if (getRowIndexAt(y) != mActiveRowIndex) return false;
+                mTouchedRowIndex = mActiveRowIndex;
+                mTouchedHoleIndex = getHoleIndexAt(x);
+                if (mTouchedHoleIndex == -1 && !isInOk(x)) {
+                    mTouchedRowIndex = -1;
+                    return false;
+                }
+                return true;
+
+            case MotionEvent.ACTION_UP:
+                if (mTouchedRowIndex == -1) return false;
+                final int rowIndex = mTouchedRowIndex;
+                final int holeIndex = mTouchedHoleIndex;
+                mTouchedRowIndex = -1;
+                // only a release on what was pressed is a click
+                if (getRowIndexAt(y) != rowIndex || rowIndex != mActiveRowIndex || mOnBoardClickListener == null) return true;
+                if (holeIndex != -1) {
+                    if (getHoleIndexAt(x) == holeIndex) {
+                        mOnBoardClickListener.onHoleClick(rowIndex, holeIndex);
+                    }
+                } else if (isInOk(x) && mOkEnabled) {
+                    mOnBoardClickListener.onOkClick(rowIndex);
+                }
+                return true;
+
+            case MotionEvent.ACTION_CANCEL:
+                mTouchedRowIndex = -1;
+                return true;
+        }
+        return mTouchedRowIndex != -1;
+    }
+}